@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+
+/**
+ * Column whose values are loaded in the background, one virtual thread per load.
+ * Until a value arrives the column shows a placeholder. Loaded values are kept in
+ * a bounded cache, least recently used first out; a value evicted from the cache
+ * is loaded again the next time its cell is rendered. The rows of the entries
+ * being loaded follow the model events, so a loaded value is shown without
+ * looking its entry up.
+ * <p>
+ * At most as many loads as the cache holds are pending: a read beyond that
+ * cancels the least recently read pending load, as its value would be pushed out
+ * of the cache anyway. A read of every row, e.g. by a row filter or a sorter,
+ * thus keeps only the loads of the last rows read. Loads of removed rows are
+ * cancelled.
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#columnAsync(int, Function, Object, int)
+ */
+final class AsyncColumn<T> {
+    /**
+     * The row of a loaded entry after all rows changed.
+     */
+    static final int UNKNOWN = -2;
+
+    private final Function<T, Object> loader;
+    private final Object placeholder;
+    private final Map<Key, Object> cache;
+    /**
+     * Entries being loaded, least recently read first; only used on the EDT.
+     */
+    private final Map<Key, Load> pending;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    AsyncColumn(Function<T, Object> loader, Object placeholder, int capacity) {
+        this.loader = loader;
+        this.placeholder = placeholder;
+        this.cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 2216406384317466128L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.pending = new LinkedHashMap<Key, Load>(16, 0.75f, true) {
+            private static final long serialVersionUID = -3561904838472951635L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Load> eldest) {
+                if(size() > capacity) {
+                    eldest.getValue().future.cancel(true);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The loaded value of the entry without loading it.
+     *
+     * @param entry
+     * @return the value; or the placeholder if not loaded.
+     */
+    Object peek(T entry) {
+        Key key = new Key(entry);
+        synchronized(cache) {
+            Object value = cache.get(key);
+            return value != null || cache.containsKey(key) ? value : placeholder;
+        }
+    }
+
+    /**
+     * The loaded value of the entry, starting the load if the value is not loaded
+     * or being loaded. Must be called on the EDT.
+     *
+     * @param entry
+     * @param rowIndex the row of the entry.
+     * @param loaded called on the EDT with the entry and its current row once its
+     *        value is loaded; the row is {@link #UNKNOWN} if the entry cannot be
+     *        shown at a known row.
+     * @return the value; or the placeholder if not loaded.
+     */
+    Object get(T entry, int rowIndex, ObjIntConsumer<T> loaded) {
+        Key key = new Key(entry);
+        synchronized(cache) {
+            Object value = cache.get(key);
+            if(value != null || cache.containsKey(key)) {
+                return value;
+            }
+        }
+        if(pending.get(key) == null) {
+            Load load = new Load(rowIndex);
+            pending.put(key, load);
+            load.future = executor.submit(() -> {
+                Object value;
+                try {
+                    value = loader.apply(entry);
+                } catch (RuntimeException e) {
+                    // not cached; loaded again on the next render
+                    SwingUtilities.invokeLater(() -> pending.remove(key, load));
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if(!pending.remove(key, load)) {
+                        // cancelled
+                        return;
+                    }
+                    synchronized(cache) {
+                        cache.put(key, value);
+                    }
+                    loaded.accept(entry, load.row);
+                });
+            });
+        }
+        return placeholder;
+    }
+
+    /**
+     * Keep the rows of the entries being loaded in line with a model change. Must
+     * be called on the EDT.
+     *
+     * @param e
+     */
+    void rowsChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        boolean allRows = first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE;
+        if(pending.isEmpty() || (e.getType() == TableModelEvent.UPDATE && !allRows)) {
+            return;
+        }
+        int count = last - first + 1;
+        for(Iterator<Load> i = pending.values().iterator(); i.hasNext();) {
+            Load load = i.next();
+            if(load.row == UNKNOWN) {
+                continue;
+            }
+            if(allRows) {
+                load.row = UNKNOWN;
+            } else if(e.getType() == TableModelEvent.INSERT) {
+                if(load.row >= first) {
+                    load.row += count;
+                }
+            } else if(load.row > last) {
+                load.row -= count;
+            } else if(load.row >= first) {
+                load.future.cancel(true);
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Drop all loaded values.
+     */
+    void clear() {
+        synchronized(cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Stop accepting loads; loads in progress complete.
+     */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * A pending load and the current row of its entry.
+     */
+    private static final class Load {
+        private int row;
+        private Future<?> future;
+
+        Load(int row) {
+            this.row = row;
+        }
+    }
+
+    /**
+     * Entries by identity, whatever their equals.
+     */
+    private static final class Key {
+        private final Object entry;
+
+        Key(Object entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key)obj).entry == entry;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(entry);
+        }
+    }
+}
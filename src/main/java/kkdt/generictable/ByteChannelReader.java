@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered reader of the values written by {@linkplain ByteChannelWriter}.
+ *
+ * @author thinh ho
+ */
+final class ByteChannelReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    /**
+     * Reusable scratch space for decoding strings.
+     */
+    private byte[] bytes = new byte[256];
+
+    ByteChannelReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer.flip();
+    }
+
+    /**
+     * Drop the buffered bytes, e.g. after the channel moved to another position.
+     */
+    void reset() {
+        buffer.clear().flip();
+    }
+
+    int readByte() throws IOException {
+        ensure(1);
+        return buffer.get() & 0xFF;
+    }
+
+    int readInt() throws IOException {
+        ensure(4);
+        return buffer.getInt();
+    }
+
+    long readLong() throws IOException {
+        ensure(8);
+        return buffer.getLong();
+    }
+
+    double readDouble() throws IOException {
+        ensure(8);
+        return buffer.getDouble();
+    }
+
+    float readFloat() throws IOException {
+        ensure(4);
+        return buffer.getFloat();
+    }
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long)(b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length value");
+    }
+
+    long readZigZag() throws IOException {
+        long l = readVarLong();
+        return (l >>> 1) ^ -(l & 1);
+    }
+
+    String readString() throws IOException {
+        int length = (int)readVarLong();
+        if(length > bytes.length) {
+            bytes = new byte[Math.max(length, bytes.length * 2)];
+        }
+        int read = 0;
+        while(read < length) {
+            ensure(1);
+            int n = Math.min(buffer.remaining(), length - read);
+            buffer.get(bytes, read, n);
+            read += n;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void ensure(int n) throws IOException {
+        if(buffer.remaining() < n) {
+            buffer.compact();
+            while(buffer.position() < n) {
+                if(channel.read(buffer) < 0) {
+                    throw new EOFException();
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writer of primitive values and UTF-8 text to a byte channel. A single
+ * buffer is reused for the lifetime of the writer and drained to the channel
+ * whenever it cannot hold the next value.
+ *
+ * @author thinh ho
+ */
+final class ByteChannelWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private long written;
+
+    ByteChannelWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Total bytes written to the channel so far, including buffered bytes.
+     *
+     * @return
+     */
+    long position() {
+        return written + buffer.position();
+    }
+
+    void writeByte(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte)b);
+    }
+
+    void writeInt(int i) throws IOException {
+        ensure(4);
+        buffer.putInt(i);
+    }
+
+    void writeLong(long l) throws IOException {
+        ensure(8);
+        buffer.putLong(l);
+    }
+
+    void writeDouble(double d) throws IOException {
+        ensure(8);
+        buffer.putDouble(d);
+    }
+
+    void writeFloat(float f) throws IOException {
+        ensure(4);
+        buffer.putFloat(f);
+    }
+
+    /**
+     * Unsigned LEB128 variable length encoding.
+     *
+     * @param l
+     * @throws IOException
+     */
+    void writeVarLong(long l) throws IOException {
+        ensure(10);
+        while((l & ~0x7FL) != 0) {
+            buffer.put((byte)((l & 0x7F) | 0x80));
+            l >>>= 7;
+        }
+        buffer.put((byte)l);
+    }
+
+    /**
+     * Zig-zag variable length encoding so small negative values stay small.
+     *
+     * @param l
+     * @throws IOException
+     */
+    void writeZigZag(long l) throws IOException {
+        writeVarLong((l << 1) ^ (l >> 63));
+    }
+
+    /**
+     * Length-prefixed UTF-8 string.
+     *
+     * @param s
+     * @throws IOException
+     */
+    void writeString(CharSequence s) throws IOException {
+        writeVarLong(utf8Length(s));
+        writeChars(s);
+    }
+
+    /**
+     * UTF-8 text without a length prefix.
+     *
+     * @param s
+     * @throws IOException
+     */
+    void writeChars(CharSequence s) throws IOException {
+        int length = s.length();
+        for(int i = 0; i < length; i++) {
+            ensure(4);
+            char c = s.charAt(i);
+            if(c < 0x80) {
+                buffer.put((byte)c);
+            } else if(c < 0x800) {
+                buffer.put((byte)(0xC0 | (c >> 6)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buffer.put((byte)(0xF0 | (cp >> 18)));
+                buffer.put((byte)(0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte)(0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (cp & 0x3F)));
+            } else if(Character.isSurrogate(c)) {
+                buffer.put((byte)'?');
+            } else {
+                buffer.put((byte)(0xE0 | (c >> 12)));
+                buffer.put((byte)(0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte)(0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    /**
+     * Drain the buffer to the channel.
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if(buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Number of bytes of the UTF-8 encoding as written by {@link #writeChars(CharSequence)}.
+     *
+     * @param s
+     * @return
+     */
+    static int utf8Length(CharSequence s) {
+        int length = s.length();
+        int bytes = 0;
+        for(int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if(c < 0x80) {
+                bytes += 1;
+            } else if(c < 0x800) {
+                bytes += 2;
+            } else if(Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if(Character.isSurrogate(c)) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import javax.swing.RowFilter;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * <p>
+ * Row filter that remembers the include/exclude result of every model row so
+ * that the predicate is only re-tested for rows that were inserted or updated
+ * since the last evaluation. Deleted rows are dropped and the remembered state
+ * of the remaining rows is shifted to match the new model indices.
+ * </p>
+ *
+ * <p>
+ * The filter listens to the table model directly and must be notified before
+ * the row sorter; table model listeners are notified in reverse order of
+ * registration so the filter must be created after the model is attached to
+ * the table (i.e. after the {@linkplain GenericTableController} is created).
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableController#createCachedFilter(Predicate)
+ */
+public class CachedRowFilter<T> extends RowFilter<GenericTableModel<T>, Integer> implements TableModelListener {
+    private final GenericTableModel<T> model;
+    private final Predicate<T> include;
+    /**
+     * Rows that have a remembered result.
+     */
+    private final BitSet tested = new BitSet();
+    /**
+     * Rows that passed the predicate (only meaningful if tested).
+     */
+    private final BitSet passed = new BitSet();
+    /**
+     * Model row count as of the last processed event.
+     */
+    private int rowCount;
+
+    /**
+     * Create the filter and start listening to the specified model.
+     *
+     * @param model
+     * @param include true to include an entry in the table; false to exclude it.
+     */
+    public CachedRowFilter(GenericTableModel<T> model, Predicate<T> include) {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        Objects.requireNonNull(include, "Required non-null Predicate");
+        this.model = model;
+        this.include = include;
+        this.rowCount = model.getRowCount();
+        model.addTableModelListener(this);
+    }
+
+    @Override
+    public boolean include(RowFilter.Entry<? extends GenericTableModel<T>, ? extends Integer> entry) {
+        int row = entry.getIdentifier();
+        if(!tested.get(row)) {
+            passed.set(row, include.test(model.getEntry(row)));
+            tested.set(row);
+        }
+        return passed.get(row);
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            invalidate();
+            return;
+        }
+        switch(e.getType()) {
+        case TableModelEvent.INSERT:
+            shiftUp(tested, first, last - first + 1);
+            shiftUp(passed, first, last - first + 1);
+            break;
+        case TableModelEvent.DELETE:
+            shiftDown(tested, first, last - first + 1);
+            shiftDown(passed, first, last - first + 1);
+            break;
+        default:
+            tested.clear(first, last + 1);
+            break;
+        }
+        rowCount = model.getRowCount();
+    }
+
+    /**
+     * Forget all remembered results so that every row is re-tested.
+     */
+    public void invalidate() {
+        tested.clear();
+        passed.clear();
+        rowCount = model.getRowCount();
+    }
+
+    /**
+     * Stop listening to the table model; the filter should no longer be used
+     * afterwards.
+     */
+    public void release() {
+        model.removeTableModelListener(this);
+        invalidate();
+    }
+
+    /**
+     * Open a gap of {@code count} unset bits at {@code from}; appends are free.
+     */
+    private void shiftUp(BitSet bits, int from, int count) {
+        if(from < rowCount) {
+            BitSet tail = bits.get(from, rowCount);
+            bits.clear(from, rowCount);
+            for(int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+                bits.set(from + count + i);
+            }
+        }
+    }
+
+    /**
+     * Close the gap of {@code count} bits at {@code from}.
+     */
+    private void shiftDown(BitSet bits, int from, int count) {
+        BitSet tail = bits.get(from + count, Math.max(rowCount, from + count));
+        bits.clear(from, Math.max(rowCount, from + count));
+        for(int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1)) {
+            bits.set(from + i);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>
+ * Column value access compiled into method handles once, so reading or writing a
+ * cell involves no reflection lookups or accessible-flag changes. A column is a
+ * field or a getter method (e.g. a record component accessor) and may follow a
+ * property path from there (see {@linkplain OrderedColumn#path()});
+ * every step of the path is null-safe: a null along the way reads as null and
+ * makes a write a no-op.
+ * </p>
+ *
+ * <p>
+ * Accessors do not share mutable state and can be used from any thread.
+ * </p>
+ *
+ * @author thinh ho
+ */
+final class ColumnAccessor {
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodHandle IS_NULL;
+    private static final MethodHandle NULL;
+    static {
+        try {
+            IS_NULL = MethodHandles.lookup().findStatic(Objects.class, "isNull", MethodType.methodType(boolean.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        NULL = MethodHandles.dropArguments(MethodHandles.constant(Object.class, null), 0, Object.class);
+    }
+
+    private final String name;
+    private final Class<?> type;
+    /**
+     * (Object)Object - entry to column value.
+     */
+    private final MethodHandle getter;
+    /**
+     * (Object)Object - entry to the object holding the last field of the path.
+     */
+    private final MethodHandle owner;
+    /**
+     * (Object,Object)void - set the last field of the path; null if read-only.
+     */
+    private final MethodHandle setter;
+
+    private ColumnAccessor(String name, Class<?> type, MethodHandle getter, MethodHandle owner, MethodHandle setter) {
+        this.name = name;
+        this.type = type;
+        this.getter = getter;
+        this.owner = owner;
+        this.setter = setter;
+    }
+
+    /**
+     * Compile the accessor for the field followed by the optional property path.
+     *
+     * @param field the column field.
+     * @param path dot-separated field names relative to the field value; or empty.
+     * @return
+     * @throws IllegalStateException if the path cannot be resolved.
+     */
+    static ColumnAccessor of(Field field, String path) {
+        try {
+            return of(field.toString(), field.getName(), field.getType(), getter(field), setter(field), path);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access column field " + field + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compile the accessor for the getter method, e.g. a record component accessor,
+     * followed by the optional property path.
+     *
+     * @param getter the column method without parameters.
+     * @param setter the method updating the value; or null if read-only.
+     * @param path dot-separated field names relative to the method value; or empty.
+     * @return
+     * @throws IllegalStateException if the method is not a getter or the path cannot be resolved.
+     */
+    static ColumnAccessor of(Method getter, Method setter, String path) {
+        if(getter.getParameterCount() != 0 || getter.getReturnType() == void.class || Modifier.isStatic(getter.getModifiers())) {
+            throw new IllegalStateException("Column method must be an instance getter: " + getter);
+        }
+        try {
+            MethodHandle set = setter == null ? null : MethodHandles.lookup().unreflect(accessible(setter)).asType(SETTER);
+            return of(getter.toString(), getter.getName(), getter.getReturnType(),
+                MethodHandles.lookup().unreflect(accessible(getter)).asType(GETTER), set, path);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access column method " + getter + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The public or declared method {@code set<Name>} taking the value of the getter,
+     * where the getter is {@code get<Name>}, {@code is<Name>} or {@code <name>}.
+     *
+     * @param getter
+     * @return the setter; or null if there is none.
+     */
+    static Method findSetter(Method getter) {
+        String name = propertyName(getter);
+        String setter = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for(Class<?> c = getter.getDeclaringClass(); c != null; c = c.getSuperclass()) {
+            for(Method m : c.getDeclaredMethods()) {
+                if(m.getName().equals(setter) && m.getParameterCount() == 1 && !Modifier.isStatic(m.getModifiers())
+                    && m.getParameterTypes()[0].isAssignableFrom(getter.getReturnType()))
+                {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The property of a getter: {@code name} for {@code getName}, {@code isName}
+     * or {@code name}.
+     *
+     * @param getter
+     * @return
+     */
+    static String propertyName(Method getter) {
+        String name = getter.getName();
+        if(name.startsWith("get") && name.length() > 3) {
+            name = name.substring(3);
+        } else if(name.startsWith("is") && name.length() > 2) {
+            name = name.substring(2);
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static ColumnAccessor of(String member, String name, Class<?> type, MethodHandle first, MethodHandle firstSetter, String path) {
+        if(path == null || path.isEmpty()) {
+            return new ColumnAccessor(name, type, first, MethodHandles.identity(Object.class), firstSetter);
+        }
+        List<Field> chain = new ArrayList<>();
+        Class<?> current = type;
+        for(String step : path.split("\\.")) {
+            Field next = findField(current, step.trim());
+            if(next == null) {
+                throw new IllegalStateException(String.format("Cannot resolve path '%s' from %s: no field %s in %s",
+                    path, member, step, current.getName()));
+            }
+            chain.add(next);
+            current = next.getType();
+        }
+
+        try {
+            MethodHandle getter = first;
+            MethodHandle owner = first;
+            for(int i = 0; i < chain.size(); i++) {
+                if(i == chain.size() - 1) {
+                    owner = getter;
+                }
+                getter = MethodHandles.filterReturnValue(getter, nullSafe(getter(chain.get(i))));
+            }
+            Field last = chain.get(chain.size() - 1);
+            return new ColumnAccessor(name + "." + path, last.getType(), getter, owner, setter(last));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot access column path " + path + " of " + member + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The type of the value at the end of the path.
+     *
+     * @return
+     */
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * True if the value can be written.
+     *
+     * @return
+     */
+    boolean isWritable() {
+        return setter != null;
+    }
+
+    /**
+     * The column value of the entry.
+     *
+     * @param entry
+     * @return
+     */
+    Object get(Object entry) {
+        try {
+            return (Object)getter.invokeExact(entry);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Cannot obtain " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Update the column value of the entry.
+     *
+     * @param entry
+     * @param value
+     * @return false if an object along the path is null and nothing was written.
+     * @throws IllegalStateException if the column is read-only.
+     */
+    boolean set(Object entry, Object value) {
+        if(setter == null) {
+            throw new IllegalStateException("Column is read-only: " + name);
+        }
+        try {
+            Object target = (Object)owner.invokeExact(entry);
+            if(target == null) {
+                return false;
+            }
+            setter.invokeExact(target, value);
+            return true;
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalArgumentException("Cannot update " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static MethodHandle nullSafe(MethodHandle step) {
+        return MethodHandles.guardWithTest(IS_NULL, NULL, step);
+    }
+
+    private static MethodHandle getter(Field field) throws IllegalAccessException {
+        MethodHandle getter = MethodHandles.lookup().unreflectGetter(accessible(field));
+        if(Modifier.isStatic(field.getModifiers())) {
+            getter = MethodHandles.dropArguments(getter, 0, Object.class);
+        }
+        return getter.asType(GETTER);
+    }
+
+    private static MethodHandle setter(Field field) {
+        try {
+            MethodHandle setter = MethodHandles.lookup().unreflectSetter(accessible(field));
+            if(Modifier.isStatic(field.getModifiers())) {
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            }
+            return setter.asType(SETTER);
+        } catch (IllegalAccessException e) {
+            // e.g. final fields of records
+            return null;
+        }
+    }
+
+    /**
+     * A private accessible copy so the shared method is never toggled.
+     */
+    private static Method accessible(Method method) {
+        try {
+            Method copy = method.getDeclaringClass().getDeclaredMethod(method.getName(), method.getParameterTypes());
+            copy.setAccessible(true);
+            return copy;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Cannot access method " + method, e);
+        }
+    }
+
+    /**
+     * A private accessible copy so the shared field is never toggled.
+     */
+    private static Field accessible(Field field) {
+        try {
+            Field copy = field.getDeclaringClass().getDeclaredField(field.getName());
+            copy.setAccessible(true);
+            return copy;
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Cannot access field " + field, e);
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        for(Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for(Field f : c.getDeclaredFields()) {
+                if(f.getName().equals(name)) {
+                    return f;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Dictionary for a low-cardinality column (see {@linkplain OrderedColumn#dictionary()}).
+ * Every distinct value is stored once and identified by an int code; the model keeps
+ * one code per row. Code 0 is always null. Codes are assigned in order of first
+ * appearance and are never reclaimed.
+ * </p>
+ *
+ * <p>
+ * Sorters and filters can work on codes: {@link #compare(int, int)} orders codes by
+ * their values and {@link #getCode(Object)} resolves a value once so rows can be
+ * matched by code equality.
+ * </p>
+ *
+ * @author thinh ho
+ */
+public final class ColumnDictionary {
+    private final Map<Object, Integer> codes = new HashMap<>();
+    private final List<Object> values = new ArrayList<>();
+    /**
+     * Rank of each code in value order; null when the dictionary has grown.
+     */
+    private int[] ranks;
+    /**
+     * Code per model row.
+     */
+    private int[] rowCodes = new int[16];
+    private int rowCount;
+
+    ColumnDictionary() {
+        values.add(null);
+    }
+
+    /**
+     * Total distinct values, including null.
+     *
+     * @return
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * The canonical value for the code.
+     *
+     * @param code
+     * @return
+     */
+    public Object getValue(int code) {
+        return values.get(code);
+    }
+
+    /**
+     * The code of the value.
+     *
+     * @param value
+     * @return the code; or -1 if the value is not in the dictionary.
+     */
+    public int getCode(Object value) {
+        if(value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * The code of the value at the specified model row.
+     *
+     * @param rowIndex
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    public int getRowCode(int rowIndex) {
+        if(rowIndex < 0 || rowIndex >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + rowIndex + " of " + rowCount);
+        }
+        return rowCodes[rowIndex];
+    }
+
+    /**
+     * Compare two codes by their values; null first, then the natural order of
+     * {@linkplain Comparable} values or else their string values.
+     *
+     * @param code1
+     * @param code2
+     * @return
+     */
+    public int compare(int code1, int code2) {
+        if(code1 == code2) {
+            return 0;
+        }
+        int[] r = ranks();
+        return Integer.compare(r[code1], r[code2]);
+    }
+
+    /**
+     * Comparator of values in the order of {@linkplain #compare(int, int)}, for
+     * values at hand rather than model rows; sorters compare the row codes instead
+     * (see {@linkplain #getRowCode(int)}). Values not in the dictionary are compared
+     * by value.
+     *
+     * @return
+     */
+    public Comparator<Object> comparator() {
+        return (v1, v2) -> {
+            if(v1 == v2) {
+                return 0;
+            }
+            int code1 = getCode(v1);
+            int code2 = getCode(v2);
+            if(code1 < 0 || code2 < 0) {
+                return v1 == null || v2 == null ? (v1 == null ? -1 : 1) : compareValues(v1, v2);
+            }
+            return compare(code1, code2);
+        };
+    }
+
+    /**
+     * The code of the value, adding the value if it is new.
+     *
+     * @param value
+     * @return
+     */
+    int encode(Object value) {
+        if(value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        if(code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+            ranks = null;
+        }
+        return code;
+    }
+
+    void setRowCode(int rowIndex, int code) {
+        rowCodes[rowIndex] = code;
+    }
+
+    /**
+     * Open a gap of {@code count} rows at {@code first}.
+     */
+    void insertRows(int first, int count) {
+        if(rowCount + count > rowCodes.length) {
+            rowCodes = Arrays.copyOf(rowCodes, Math.max(rowCount + count, rowCodes.length * 2));
+        }
+        System.arraycopy(rowCodes, first, rowCodes, first + count, rowCount - first);
+        rowCount += count;
+    }
+
+    /**
+     * Close the gap of {@code count} rows at {@code first}.
+     */
+    void deleteRows(int first, int count) {
+        System.arraycopy(rowCodes, first + count, rowCodes, first, rowCount - first - count);
+        rowCount -= count;
+    }
+
+    /**
+     * Drop all rows.
+     */
+    void clearRows() {
+        rowCount = 0;
+    }
+
+    private int[] ranks() {
+        if(ranks == null) {
+            Integer[] order = new Integer[values.size()];
+            for(int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, 1, order.length, (c1, c2) -> compareValues(values.get(c1), values.get(c2)));
+            int[] r = new int[order.length];
+            for(int i = 0; i < order.length; i++) {
+                r[order[i]] = i;
+            }
+            ranks = r;
+        }
+        return ranks;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Object v1, Object v2) {
+        if(v1 instanceof Comparable && v1.getClass() == v2.getClass()) {
+            return ((Comparable)v1).compareTo(v2);
+        }
+        return v1.toString().compareTo(v2.toString());
+    }
+}
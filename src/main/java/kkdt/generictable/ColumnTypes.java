@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Text conversion and compact binary encoding of column values based on the
+ * {@linkplain OrderedColumn#type()}.
+ *
+ * @author thinh ho
+ */
+final class ColumnTypes {
+    /**
+     * Binary value tags; a value is its tag byte followed by the payload.
+     */
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int INT = 2;
+    static final int LONG = 3;
+    static final int DOUBLE = 4;
+    static final int FLOAT = 5;
+    static final int SHORT = 6;
+    static final int BYTE = 7;
+    static final int FALSE = 8;
+    static final int TRUE = 9;
+    static final int CHAR = 10;
+    static final int LOCAL_DATE = 11;
+    static final int INSTANT = 12;
+
+    private ColumnTypes() {}
+
+    /**
+     * The wrapper class for primitive types; otherwise the type itself.
+     *
+     * @param type
+     * @return
+     */
+    static Class<?> boxed(Class<?> type) {
+        if(!type.isPrimitive()) {
+            return type;
+        }
+        if(type == int.class) return Integer.class;
+        if(type == long.class) return Long.class;
+        if(type == double.class) return Double.class;
+        if(type == float.class) return Float.class;
+        if(type == short.class) return Short.class;
+        if(type == byte.class) return Byte.class;
+        if(type == boolean.class) return Boolean.class;
+        if(type == char.class) return Character.class;
+        return Void.class;
+    }
+
+    /**
+     * Convert text to a value of the specified column type.
+     *
+     * @param type the column type.
+     * @param text the text value.
+     * @return the value; or null if the text is empty.
+     * @throws IllegalArgumentException if the text cannot be converted.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object parse(Class<?> type, String text) {
+        if(text == null || text.isEmpty()) {
+            return null;
+        }
+        Class<?> t = boxed(type);
+        try {
+            if(t == String.class || t == Object.class || t == CharSequence.class) return text;
+            if(t == Integer.class) return Integer.valueOf(text.trim());
+            if(t == Long.class) return Long.valueOf(text.trim());
+            if(t == Double.class) return Double.valueOf(text.trim());
+            if(t == Float.class) return Float.valueOf(text.trim());
+            if(t == Short.class) return Short.valueOf(text.trim());
+            if(t == Byte.class) return Byte.valueOf(text.trim());
+            if(t == Boolean.class) return Boolean.valueOf(text.trim());
+            if(t == Character.class) return text.charAt(0);
+            if(t == BigDecimal.class) return new BigDecimal(text.trim());
+            if(t == BigInteger.class) return new BigInteger(text.trim());
+            if(t == LocalDate.class) return LocalDate.parse(text.trim());
+            if(t == LocalDateTime.class) return LocalDateTime.parse(text.trim());
+            if(t == Instant.class) return Instant.parse(text.trim());
+            if(t.isEnum()) return Enum.valueOf((Class<Enum>)t, text.trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException(String.format("Cannot convert '%s' to %s: %s", text, t.getName(), e.getMessage()), e);
+        }
+        throw new IllegalArgumentException("Unsupported column type: " + type.getName());
+    }
+
+    /**
+     * True if values of the type are restored exactly by {@link #write(ByteChannelWriter, Object)},
+     * {@link #read(ByteChannelReader)} and {@link #coerce(Class, Object)}.
+     *
+     * @param type
+     * @return
+     */
+    static boolean isSupported(Class<?> type) {
+        Class<?> t = boxed(type);
+        return t == String.class || t == Integer.class || t == Long.class || t == Double.class || t == Float.class
+            || t == Short.class || t == Byte.class || t == Boolean.class || t == Character.class
+            || t == BigDecimal.class || t == BigInteger.class || t == LocalDate.class || t == LocalDateTime.class
+            || t == Instant.class || t.isEnum();
+    }
+
+    /**
+     * The binary tag for the specified value.
+     *
+     * @param value
+     * @return
+     */
+    static int tagOf(Object value) {
+        if(value == null) return NULL;
+        if(value instanceof String) return STRING;
+        if(value instanceof Integer) return INT;
+        if(value instanceof Long) return LONG;
+        if(value instanceof Double) return DOUBLE;
+        if(value instanceof Float) return FLOAT;
+        if(value instanceof Short) return SHORT;
+        if(value instanceof Byte) return BYTE;
+        if(value instanceof Boolean) return (Boolean)value ? TRUE : FALSE;
+        if(value instanceof Character) return CHAR;
+        if(value instanceof LocalDate) return LOCAL_DATE;
+        if(value instanceof Instant) return INSTANT;
+        return STRING;
+    }
+
+    /**
+     * Write the value in its compact binary form (tag followed by payload); types
+     * without a dedicated tag are written as their string value.
+     *
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    static void write(ByteChannelWriter out, Object value) throws IOException {
+        int tag = tagOf(value);
+        out.writeByte(tag);
+        writePayload(out, tag, value);
+    }
+
+    /**
+     * Write the payload of the value for the specified tag.
+     *
+     * @param out
+     * @param tag
+     * @param value
+     * @throws IOException
+     */
+    static void writePayload(ByteChannelWriter out, int tag, Object value) throws IOException {
+        switch(tag) {
+        case STRING:
+            out.writeString(value instanceof Enum ? ((Enum<?>)value).name() : value.toString());
+            break;
+        case INT:
+        case LONG:
+        case SHORT:
+            out.writeZigZag(((Number)value).longValue());
+            break;
+        case DOUBLE:
+            out.writeDouble((Double)value);
+            break;
+        case FLOAT:
+            out.writeFloat((Float)value);
+            break;
+        case BYTE:
+            out.writeByte((Byte)value);
+            break;
+        case CHAR:
+            out.writeVarLong((Character)value);
+            break;
+        case LOCAL_DATE:
+            out.writeZigZag(((LocalDate)value).toEpochDay());
+            break;
+        case INSTANT:
+            out.writeZigZag(((Instant)value).getEpochSecond());
+            out.writeVarLong(((Instant)value).getNano());
+            break;
+        default:
+            // NULL, TRUE, FALSE have no payload
+            break;
+        }
+    }
+
+    /**
+     * Read a value written by {@link #write(ByteChannelWriter, Object)}.
+     *
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    static Object read(ByteChannelReader in) throws IOException {
+        return readPayload(in, in.readByte());
+    }
+
+    /**
+     * Read the payload for the specified tag.
+     *
+     * @param in
+     * @param tag
+     * @return
+     * @throws IOException
+     */
+    static Object readPayload(ByteChannelReader in, int tag) throws IOException {
+        switch(tag) {
+        case NULL: return null;
+        case STRING: return in.readString();
+        case INT: return (int)in.readZigZag();
+        case LONG: return in.readZigZag();
+        case DOUBLE: return in.readDouble();
+        case FLOAT: return in.readFloat();
+        case SHORT: return (short)in.readZigZag();
+        case BYTE: return (byte)in.readByte();
+        case FALSE: return Boolean.FALSE;
+        case TRUE: return Boolean.TRUE;
+        case CHAR: return (char)in.readVarLong();
+        case LOCAL_DATE: return LocalDate.ofEpochDay(in.readZigZag());
+        case INSTANT: return Instant.ofEpochSecond(in.readZigZag(), in.readVarLong());
+        default:
+            throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+    /**
+     * Convert a decoded value to the column type; values stored as strings are
+     * parsed, everything else is returned as is.
+     *
+     * @param type
+     * @param value
+     * @return
+     */
+    static Object coerce(Class<?> type, Object value) {
+        if(value instanceof String && !boxed(type).isInstance(value)) {
+            return parse(type, (String)value);
+        }
+        return value;
+    }
+}
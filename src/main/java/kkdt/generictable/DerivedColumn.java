@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Function;
+
+/**
+ * Computed column with a per-row cache of the computed values. The model keeps the
+ * cache rows in line with table events and drops cached values whose source
+ * columns changed.
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#columnDerive(int, Function, int...)
+ */
+final class DerivedColumn<T> {
+    private static final Object UNSET = new Object();
+
+    private final Function<T, Object> compute;
+    private final BitSet sources = new BitSet();
+    /**
+     * Cached value per model row; UNSET if not computed.
+     */
+    private Object[] values = new Object[16];
+    private int rowCount;
+
+    DerivedColumn(Function<T, Object> compute, int... sourceColumns) {
+        this.compute = compute;
+        for(int c : sourceColumns) {
+            sources.set(c);
+        }
+    }
+
+    /**
+     * True if the value depends on the specified column.
+     *
+     * @param columnIndex
+     * @return
+     */
+    boolean dependsOn(int columnIndex) {
+        return sources.get(columnIndex);
+    }
+
+    /**
+     * True if the value depends on any of the specified columns.
+     *
+     * @param columns
+     * @return
+     */
+    boolean dependsOnAny(BitSet columns) {
+        return sources.intersects(columns);
+    }
+
+    Object compute(T entry) {
+        return compute.apply(entry);
+    }
+
+    /**
+     * The cached value of the row, computed on first access.
+     *
+     * @param rowIndex
+     * @param entry the entry at the row.
+     * @return
+     */
+    Object get(int rowIndex, T entry) {
+        Object value = values[rowIndex];
+        if(value == UNSET) {
+            value = compute.apply(entry);
+            values[rowIndex] = value;
+        }
+        return value;
+    }
+
+    void invalidate(int first, int last) {
+        Arrays.fill(values, first, last + 1, UNSET);
+    }
+
+    /**
+     * Open a gap of {@code count} uncomputed rows at {@code first}.
+     */
+    void insertRows(int first, int count) {
+        if(rowCount + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(rowCount + count, values.length * 2));
+        }
+        System.arraycopy(values, first, values, first + count, rowCount - first);
+        rowCount += count;
+        invalidate(first, first + count - 1);
+    }
+
+    /**
+     * Close the gap of {@code count} rows at {@code first}.
+     */
+    void deleteRows(int first, int count) {
+        System.arraycopy(values, first + count, values, first, rowCount - first - count);
+        Arrays.fill(values, rowCount - count, rowCount, null);
+        rowCount -= count;
+    }
+
+    /**
+     * Drop all cached values and size the cache to the specified rows.
+     */
+    void reset(int rows) {
+        values = new Object[Math.max(16, rows)];
+        rowCount = rows;
+        invalidate(0, rows - 1);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import javax.swing.RowFilter;
+import javax.swing.table.TableRowSorter;
+
+/**
+ * <p>
+ * {@linkplain TableRowSorter} that sorts dictionary-encoded columns by the codes
+ * the model keeps per row (see {@linkplain ColumnDictionary#compare(int, int)}):
+ * a comparison reads two ints and two ranks, with no value lookup.
+ * </p>
+ *
+ * <p>
+ * Only sorting sees the codes. Row filters and string values see the column
+ * values, so filters set on this sorter work as on any {@linkplain TableRowSorter}.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableController#defaultRowSorter()
+ */
+final class DictionaryRowSorter<T> extends TableRowSorter<GenericTableModel<T>> {
+    private final ColumnDictionary[] dictionaries;
+    private RowFilter<? super GenericTableModel<T>, ? super Integer> filter;
+
+    DictionaryRowSorter(GenericTableModel<T> model) {
+        super(model);
+        dictionaries = new ColumnDictionary[model.getColumnCount()];
+        for(int i = 0; i < dictionaries.length; i++) {
+            dictionaries[i] = model.getDictionary(i);
+        }
+        // replacing the wrapper drops the comparators
+        setModelWrapper(new CodeWrapper(getModelWrapper()));
+        for(int i = 0; i < dictionaries.length; i++) {
+            ColumnDictionary dictionary = dictionaries[i];
+            if(dictionary != null) {
+                setComparator(i, (c1, c2) -> dictionary.compare((Integer)c1, (Integer)c2));
+            }
+        }
+    }
+
+    @Override
+    public void setModel(GenericTableModel<T> model) {
+        if(dictionaries == null) {
+            // called by the constructor
+            super.setModel(model);
+        } else if(model != getModel()) {
+            throw new IllegalArgumentException("Dictionary sorter cannot change its model");
+        }
+    }
+
+    @Override
+    public void setRowFilter(RowFilter<? super GenericTableModel<T>, ? super Integer> filter) {
+        this.filter = filter;
+        super.setRowFilter(filter == null ? null : new RowFilter<GenericTableModel<T>, Integer>() {
+            @Override
+            public boolean include(Entry<? extends GenericTableModel<T>, ? extends Integer> entry) {
+                return filter.include(new ValueEntry(entry));
+            }
+        });
+    }
+
+    @Override
+    public RowFilter<? super GenericTableModel<T>, ? super Integer> getRowFilter() {
+        return filter;
+    }
+
+    /**
+     * Model values, with the row code for dictionary-encoded columns.
+     */
+    private final class CodeWrapper extends ModelWrapper<GenericTableModel<T>, Integer> {
+        private final ModelWrapper<GenericTableModel<T>, Integer> values;
+
+        CodeWrapper(ModelWrapper<GenericTableModel<T>, Integer> values) {
+            this.values = values;
+        }
+
+        @Override
+        public GenericTableModel<T> getModel() {
+            return values.getModel();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return values.getColumnCount();
+        }
+
+        @Override
+        public int getRowCount() {
+            return values.getRowCount();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            ColumnDictionary dictionary = dictionaries[column];
+            return dictionary == null ? values.getValueAt(row, column) : dictionary.getRowCode(row);
+        }
+
+        @Override
+        public String getStringValueAt(int row, int column) {
+            return values.getStringValueAt(row, column);
+        }
+
+        @Override
+        public Integer getIdentifier(int row) {
+            return values.getIdentifier(row);
+        }
+    }
+
+    /**
+     * Filter entry with the values of dictionary-encoded columns instead of codes.
+     */
+    private final class ValueEntry extends RowFilter.Entry<GenericTableModel<T>, Integer> {
+        private final RowFilter.Entry<? extends GenericTableModel<T>, ? extends Integer> codes;
+
+        ValueEntry(RowFilter.Entry<? extends GenericTableModel<T>, ? extends Integer> codes) {
+            this.codes = codes;
+        }
+
+        @Override
+        public GenericTableModel<T> getModel() {
+            return codes.getModel();
+        }
+
+        @Override
+        public int getValueCount() {
+            return codes.getValueCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            ColumnDictionary dictionary = dictionaries[index];
+            return dictionary == null ? codes.getValue(index) : dictionary.getValue((Integer)codes.getValue(index));
+        }
+
+        @Override
+        public String getStringValue(int index) {
+            return codes.getStringValue(index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return codes.getIdentifier();
+        }
+    }
+}
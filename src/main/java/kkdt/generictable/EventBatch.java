@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.TableModel;
+
+/**
+ * <p>
+ * Table events recorded during a batch, merged into the fewest events that
+ * describe the same change:
+ * </p>
+ * <ul>
+ * <li>Removed rows become one delete per run of consecutive rows of the model as
+ * it was before the batch, in row order from the last run, with the removed
+ * entries when every merged delete had them; adjacent or overlapping removals
+ * merge into one run.</li>
+ * <li>Updated rows become one update per run of consecutive rows and updated
+ * column, or for all columns; updates of removed rows are dropped.</li>
+ * <li>Rows appended at the end become one insert; updates and removals of
+ * appended rows are part of the insert.</li>
+ * <li>Anything else, e.g. inserts before the end, becomes one data change.</li>
+ * </ul>
+ *
+ * @author thinh ho
+ * @see GenericTableModel#batch(java.util.function.Consumer)
+ */
+final class EventBatch {
+    /**
+     * Updated rows before the appended rows per column, or all columns, as the
+     * rows are after the recorded changes.
+     */
+    private final Map<Integer, BitSet> updated = new TreeMap<>();
+    /**
+     * Removed rows by first row of the model before the batch.
+     */
+    private final NavigableMap<Integer, Removed> removed = new TreeMap<>();
+    /**
+     * First appended row; -1 if none.
+     */
+    private int appendFrom = -1;
+    private boolean dataChanged;
+    private boolean structureChanged;
+
+    /**
+     * Record the event fired by the model, which has already changed.
+     *
+     * @param e
+     * @param rowCount the model rows after the change.
+     */
+    void record(TableModelEvent e, int rowCount) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW) {
+            structureChanged = true;
+            return;
+        }
+        if(dataChanged || last == Integer.MAX_VALUE) {
+            dataChanged = true;
+            return;
+        }
+        int end = appendFrom < 0 ? Integer.MAX_VALUE : appendFrom;
+        switch(e.getType()) {
+        case TableModelEvent.INSERT:
+            if(last != rowCount - 1) {
+                dataChanged = true;
+            } else if(appendFrom < 0) {
+                appendFrom = first;
+            }
+            break;
+        case TableModelEvent.DELETE:
+            if(first < end) {
+                int count = Math.min(last, end - 1) - first + 1;
+                List<?> entries = e instanceof GenericTableModelEvent ? ((GenericTableModelEvent<?>)e).getEntries() : null;
+                remove(first, count, entries == null ? null : entries.subList(0, count));
+                if(appendFrom >= 0) {
+                    appendFrom -= count;
+                }
+            }
+            if(appendFrom == rowCount) {
+                // every appended row is gone again
+                appendFrom = -1;
+            }
+            break;
+        default:
+            if(first < end) {
+                updated.computeIfAbsent(e.getColumn(), c -> new BitSet()).set(first, Math.min(last, end - 1) + 1);
+            }
+            break;
+        }
+    }
+
+    /**
+     * Merge the removal of {@code count} rows at {@code first}, as the rows are now,
+     * with the rows removed before.
+     */
+    private void remove(int first, int count, List<?> entries) {
+        for(BitSet rows : updated.values()) {
+            BitSet after = rows.get(first + count, Math.max(rows.length(), first + count));
+            rows.clear(first, Math.max(rows.length(), first));
+            after.stream().forEach(row -> rows.set(first + row));
+        }
+        // the first removed row in the model before the batch
+        int origin = first;
+        for(Removed r : removed.values()) {
+            if(r.first > origin) {
+                break;
+            }
+            origin += r.count();
+        }
+        Removed merged = new Removed(origin);
+        Map.Entry<Integer, Removed> before = removed.lowerEntry(origin);
+        if(before != null && before.getValue().last == origin - 1) {
+            merged = before.getValue();
+            removed.remove(before.getKey());
+        }
+        int taken = 0;
+        for(Iterator<Removed> i = removed.tailMap(origin, true).values().iterator(); i.hasNext();) {
+            Removed r = i.next();
+            int gap = r.first - merged.last - 1;
+            if(gap > count - taken) {
+                break;
+            }
+            merged.add(entries, taken, gap);
+            taken += gap;
+            merged.add(r);
+            i.remove();
+        }
+        merged.add(entries, taken, count - taken);
+        removed.put(merged.first, merged);
+    }
+
+    /**
+     * The merged events.
+     *
+     * @param source
+     * @param rowCount the model rows at the end of the batch.
+     * @return
+     */
+    List<TableModelEvent> events(TableModel source, int rowCount) {
+        List<TableModelEvent> events = new ArrayList<>();
+        if(structureChanged) {
+            events.add(new TableModelEvent(source, TableModelEvent.HEADER_ROW));
+        } else if(dataChanged) {
+            events.add(new TableModelEvent(source));
+        } else {
+            for(Removed r : removed.descendingMap().values()) {
+                events.add(r.entries == null
+                    ? new TableModelEvent(source, r.first, r.last, TableModelEvent.ALL_COLUMNS, TableModelEvent.DELETE)
+                    : new GenericTableModelEvent<>(source, r.first, r.last, TableModelEvent.DELETE, r.entries));
+            }
+            BitSet all = updated.getOrDefault(TableModelEvent.ALL_COLUMNS, new BitSet());
+            for(Map.Entry<Integer, BitSet> columnRows : updated.entrySet()) {
+                int column = columnRows.getKey();
+                BitSet rows = columnRows.getValue();
+                if(column != TableModelEvent.ALL_COLUMNS) {
+                    rows.andNot(all);
+                }
+                for(int from = rows.nextSetBit(0); from >= 0; from = rows.nextSetBit(from)) {
+                    int to = rows.nextClearBit(from);
+                    events.add(new TableModelEvent(source, from, to - 1, column));
+                    from = to;
+                }
+            }
+            if(appendFrom >= 0) {
+                events.add(new TableModelEvent(source, appendFrom, rowCount - 1, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Consecutive removed rows of the model before the batch.
+     */
+    private static final class Removed {
+        private final int first;
+        private int last;
+        /**
+         * The removed entries in row order; null if not all are known.
+         */
+        private List<Object> entries = new ArrayList<>();
+
+        Removed(int first) {
+            this.first = first;
+            this.last = first - 1;
+        }
+
+        int count() {
+            return last - first + 1;
+        }
+
+        /**
+         * Extend by {@code count} rows removed now, whose entries start at {@code from}.
+         */
+        void add(List<?> removed, int from, int count) {
+            last += count;
+            if(entries != null && removed != null) {
+                entries.addAll(removed.subList(from, from + count));
+            } else {
+                entries = null;
+            }
+        }
+
+        /**
+         * Extend by the rows removed before, which follow directly.
+         */
+        void add(Removed next) {
+            last = next.last;
+            if(entries != null && next.entries != null) {
+                entries.addAll(next.entries);
+            } else {
+                entries = null;
+            }
+        }
+    }
+}
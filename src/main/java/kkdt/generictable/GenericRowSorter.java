@@ -0,0 +1,521 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+/**
+ * <p>
+ * Row sorter for a {@linkplain GenericTableModel} that compares precomputed sort
+ * keys instead of cell values. The keys of a column are extracted once per row
+ * the first time the column is sorted (primitive arrays for numeric columns,
+ * collation keys for strings) and kept up to date with the model events, so a
+ * re-sort only extracts the rows inserted or updated since. A few inserted rows are
+ * placed by binary search and deleted rows are dropped from the view; only bulk
+ * inserts and changes of all rows sort every row again.
+ * </p>
+ *
+ * <p>
+ * Sorting by multiple columns is stable: rows with equal keys keep their model
+ * order. Like {@linkplain javax.swing.DefaultRowSorter} the sorter supports a
+ * {@linkplain RowFilter}, per column comparators and non-sortable columns; updated
+ * rows are only re-sorted and re-filtered with {@link #setSortsOnUpdates(boolean)}.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableController#genericRowSorter()
+ */
+public class GenericRowSorter<T> extends RowSorter<GenericTableModel<T>> {
+    private final GenericTableModel<T> model;
+    private SortKeyColumn[] columns;
+    private Comparator<?>[] comparators;
+    private boolean[] unsortable;
+    private List<SortKey> sortKeys = Collections.emptyList();
+    private int maxSortKeys = 3;
+    private boolean sortsOnUpdates;
+    private RowFilter<? super GenericTableModel<T>, ? super Integer> filter;
+    /**
+     * Null when the view is the model order.
+     */
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    public GenericRowSorter(GenericTableModel<T> model) {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        this.model = model;
+        initColumns();
+    }
+
+    private void initColumns() {
+        int count = model.getColumnCount();
+        columns = new SortKeyColumn[count];
+        comparators = new Comparator<?>[count];
+        unsortable = new boolean[count];
+        for(int c = 0; c < count; c++) {
+            // sorting reads every row and would load all of them
+            unsortable[c] = model.isAsync(c);
+        }
+    }
+
+    @Override
+    public GenericTableModel<T> getModel() {
+        return model;
+    }
+
+    /**
+     * Compare the values of the column with the comparator instead of by type.
+     *
+     * @param columnIndex
+     * @param comparator
+     */
+    public void setComparator(int columnIndex, Comparator<?> comparator) {
+        comparators[columnIndex] = comparator;
+        columns[columnIndex] = null;
+        if(isSortedBy(columnIndex)) {
+            sort();
+        }
+    }
+
+    public void setSortable(int columnIndex, boolean sortable) {
+        unsortable[columnIndex] = !sortable;
+    }
+
+    public boolean isSortable(int columnIndex) {
+        return !unsortable[columnIndex];
+    }
+
+    public void setMaxSortKeys(int maxSortKeys) {
+        if(maxSortKeys < 1) {
+            throw new IllegalArgumentException("Invalid max sort keys: " + maxSortKeys);
+        }
+        this.maxSortKeys = maxSortKeys;
+    }
+
+    public int getMaxSortKeys() {
+        return maxSortKeys;
+    }
+
+    /**
+     * True to re-sort and re-filter when rows are updated.
+     *
+     * @param sortsOnUpdates
+     */
+    public void setSortsOnUpdates(boolean sortsOnUpdates) {
+        this.sortsOnUpdates = sortsOnUpdates;
+    }
+
+    public boolean getSortsOnUpdates() {
+        return sortsOnUpdates;
+    }
+
+    public void setRowFilter(RowFilter<? super GenericTableModel<T>, ? super Integer> filter) {
+        this.filter = filter;
+        sort();
+    }
+
+    public RowFilter<? super GenericTableModel<T>, ? super Integer> getRowFilter() {
+        return filter;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        if(unsortable[column]) {
+            return;
+        }
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        int index = 0;
+        while(index < keys.size() && keys.get(index).getColumn() != column) {
+            index++;
+        }
+        if(index == 0 && !keys.isEmpty()) {
+            SortOrder order = keys.get(0).getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, order));
+        } else {
+            if(index < keys.size()) {
+                keys.remove(index);
+            }
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        if(keys.size() > maxSortKeys) {
+            keys = keys.subList(0, maxSortKeys);
+        }
+        setSortKeys(keys);
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> next = new ArrayList<>();
+        if(keys != null) {
+            for(SortKey key : keys) {
+                Objects.requireNonNull(key, "Required non-null SortKey");
+                checkColumn(key.getColumn());
+                if(key.getSortOrder() != SortOrder.UNSORTED) {
+                    next.add(key);
+                }
+            }
+        }
+        if(!next.equals(sortKeys)) {
+            sortKeys = Collections.unmodifiableList(next);
+            fireSortOrderChanged();
+            sort();
+        }
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if(viewToModel == null) {
+            if(index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid view index: " + index);
+            }
+            return index;
+        }
+        return viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if(modelToView == null) {
+            if(index < 0 || index >= model.getRowCount()) {
+                throw new IndexOutOfBoundsException("Invalid model index: " + index);
+            }
+            return index;
+        }
+        return modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        initColumns();
+        if(!sortKeys.isEmpty()) {
+            sortKeys = Collections.emptyList();
+            fireSortOrderChanged();
+        }
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        Arrays.fill(columns, null);
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        checkRows(firstRow, endRow, model.getRowCount());
+        for(SortKeyColumn column : columns) {
+            if(column != null) {
+                column.insertRows(firstRow, endRow - firstRow + 1);
+            }
+        }
+        if(!isActive()) {
+            return;
+        }
+        if(viewToModel == null || endRow - firstRow > viewToModel.length / 10) {
+            sort();
+        } else {
+            insertInView(firstRow, endRow);
+        }
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        checkRows(firstRow, endRow, model.getRowCount() + endRow - firstRow + 1);
+        for(SortKeyColumn column : columns) {
+            if(column != null) {
+                column.deleteRows(firstRow, endRow - firstRow + 1);
+            }
+        }
+        if(isActive() && viewToModel != null) {
+            deleteFromView(firstRow, endRow);
+        }
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        for(SortKeyColumn column : columns) {
+            if(column != null) {
+                column.invalidate(firstRow, endRow);
+            }
+        }
+        if(sortsOnUpdates && isActive()) {
+            sort();
+        }
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        checkColumn(column);
+        if(columns[column] != null) {
+            columns[column].invalidate(firstRow, endRow);
+        }
+        if(sortsOnUpdates && (filter != null || isSortedBy(column))) {
+            sort();
+        }
+    }
+
+    /**
+     * Filter and sort the model rows again.
+     */
+    public void sort() {
+        int[] previous = viewToModel;
+        if(previous == null) {
+            previous = new int[getViewRowCount()];
+            Arrays.setAll(previous, i -> i);
+        }
+        int rowCount = model.getRowCount();
+        if(!isActive()) {
+            viewToModel = null;
+            modelToView = null;
+        } else {
+            int[] rows = filter(rowCount);
+            if(!sortKeys.isEmpty()) {
+                boolean[] descending = new boolean[sortKeys.size()];
+                SortKeyColumn[] keys = sortKeyColumns(descending);
+                mergeSort(rows, new int[rows.length], 0, rows.length, keys, descending);
+            }
+            setView(rows, rowCount);
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * The up to date keys of the sort columns.
+     */
+    private SortKeyColumn[] sortKeyColumns(boolean[] descending) {
+        SortKeyColumn[] keys = new SortKeyColumn[sortKeys.size()];
+        for(int k = 0; k < keys.length; k++) {
+            int c = sortKeys.get(k).getColumn();
+            if(columns[c] == null) {
+                columns[c] = new SortKeyColumn(model, c, comparators[c]);
+            }
+            keys[k] = columns[c];
+            keys[k].refresh(model);
+            descending[k] = sortKeys.get(k).getSortOrder() == SortOrder.DESCENDING;
+        }
+        return keys;
+    }
+
+    private void setView(int[] rows, int rowCount) {
+        viewToModel = rows;
+        modelToView = new int[rowCount];
+        Arrays.fill(modelToView, -1);
+        for(int i = 0; i < rows.length; i++) {
+            modelToView[rows[i]] = i;
+        }
+    }
+
+    /**
+     * Place a few inserted rows into the view by binary search instead of sorting
+     * all rows again. Like {@linkplain javax.swing.DefaultRowSorter} no event is fired,
+     * the table derives the view change from the model event.
+     */
+    private void insertInView(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        int[] view = viewToModel;
+        for(int i = 0; i < view.length; i++) {
+            if(view[i] >= firstRow) {
+                view[i] += count;
+            }
+        }
+        int[] inserted = new int[count];
+        int size = 0;
+        FilterEntry entry = new FilterEntry();
+        for(int row = firstRow; row <= endRow; row++) {
+            entry.row = row;
+            if(filter == null || filter.include(entry)) {
+                inserted[size++] = row;
+            }
+        }
+        boolean[] descending = new boolean[sortKeys.size()];
+        SortKeyColumn[] keys = sortKeyColumns(descending);
+        mergeSort(inserted, new int[size], 0, size, keys, descending);
+        int[] rows = new int[view.length + size];
+        int from = 0;
+        int to = 0;
+        for(int i = 0; i < size; i++) {
+            int at = search(view, from, inserted[i], keys, descending);
+            System.arraycopy(view, from, rows, to, at - from);
+            to += at - from;
+            rows[to++] = inserted[i];
+            from = at;
+        }
+        System.arraycopy(view, from, rows, to, view.length - from);
+        setView(rows, model.getRowCount());
+    }
+
+    /**
+     * Drop deleted rows from the view, keeping the order of the others.
+     */
+    private void deleteFromView(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        int[] view = viewToModel;
+        int size = 0;
+        for(int row : view) {
+            if(row > endRow) {
+                view[size++] = row - count;
+            } else if(row < firstRow) {
+                view[size++] = row;
+            }
+        }
+        setView(size == view.length ? view : Arrays.copyOf(view, size), model.getRowCount());
+    }
+
+    /**
+     * The view index at or after {@code from} to insert the model row at; rows with
+     * equal keys stay in model order.
+     */
+    private static int search(int[] view, int from, int row, SortKeyColumn[] keys, boolean[] descending) {
+        int low = from;
+        int high = view.length;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            int result = compare(view[mid], row, keys, descending);
+            if(result < 0 || (result == 0 && view[mid] < row)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean isActive() {
+        return !sortKeys.isEmpty() || filter != null;
+    }
+
+    private boolean isSortedBy(int columnIndex) {
+        return sortKeys.stream().anyMatch(k -> k.getColumn() == columnIndex);
+    }
+
+    private static void checkRows(int firstRow, int endRow, int rowCount) {
+        if(firstRow < 0 || endRow < firstRow || endRow >= rowCount) {
+            throw new IndexOutOfBoundsException("Invalid rows: " + firstRow + "-" + endRow);
+        }
+    }
+
+    private void checkColumn(int column) {
+        if(column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Invalid column: " + column);
+        }
+    }
+
+    /**
+     * The model rows included by the filter.
+     */
+    private int[] filter(int rowCount) {
+        int[] rows = new int[rowCount];
+        int size = 0;
+        if(filter == null) {
+            for(; size < rowCount; size++) {
+                rows[size] = size;
+            }
+            return rows;
+        }
+        FilterEntry entry = new FilterEntry();
+        for(int row = 0; row < rowCount; row++) {
+            entry.row = row;
+            if(filter.include(entry)) {
+                rows[size++] = row;
+            }
+        }
+        return size == rowCount ? rows : Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * Stable merge sort of model rows by their keys.
+     */
+    private static void mergeSort(int[] rows, int[] buffer, int from, int to, SortKeyColumn[] keys, boolean[] descending) {
+        if(to - from < 8) {
+            for(int i = from + 1; i < to; i++) {
+                int row = rows[i];
+                int j = i - 1;
+                while(j >= from && compare(rows[j], row, keys, descending) > 0) {
+                    rows[j + 1] = rows[j];
+                    j--;
+                }
+                rows[j + 1] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, buffer, from, mid, keys, descending);
+        mergeSort(rows, buffer, mid, to, keys, descending);
+        if(compare(rows[mid - 1], rows[mid], keys, descending) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, buffer, from, to - from);
+        int i = from;
+        int j = mid;
+        for(int k = from; k < to; k++) {
+            if(j >= to || (i < mid && compare(buffer[i], buffer[j], keys, descending) <= 0)) {
+                rows[k] = buffer[i++];
+            } else {
+                rows[k] = buffer[j++];
+            }
+        }
+    }
+
+    private static int compare(int row1, int row2, SortKeyColumn[] keys, boolean[] descending) {
+        for(int k = 0; k < keys.length; k++) {
+            int result = keys[k].compare(row1, row2);
+            if(result != 0) {
+                return descending[k] ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    private final class FilterEntry extends RowFilter.Entry<GenericTableModel<T>, Integer> {
+        private int row;
+
+        @Override
+        public GenericTableModel<T> getModel() {
+            return model;
+        }
+
+        @Override
+        public int getValueCount() {
+            return model.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return model.getValueAt(row, index);
+        }
+
+        @Override
+        public Integer getIdentifier() {
+            return row;
+        }
+    }
+}
@@ -6,15 +6,22 @@
  */
 package kkdt.generictable;
 
-import java.util.Enumeration;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import javax.swing.DefaultRowSorter;
 import javax.swing.JTable;
 import javax.swing.RowFilter;
 import javax.swing.RowSorter;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
@@ -23,6 +30,21 @@ import javax.swing.table.TableRowSorter;
 public class GenericTableController<T> {
     private final GenericTableModel<T> model;
     private final JTable table;
+    private RowFilter<GenericTableModel<T>, Integer> filter;
+    /**
+     * The sorter whose sorting on updates was turned on for a {@linkplain CachedRowFilter},
+     * and its previous setting; null if none.
+     */
+    private RowSorter<?> updatesSorter;
+    private boolean sortsOnUpdates;
+    /**
+     * Table columns hidden at runtime by model index.
+     */
+    private final Map<Integer, TableColumn> hiddenColumns = new HashMap<>();
+    /**
+     * Tracks the selected entries; null if not tracking.
+     */
+    private SelectionTracker<T> selection;
     
     /**
      * The table and table model are required for this controller.
@@ -44,40 +66,148 @@ public class GenericTableController<T> {
      * @param sorter
      * @return
      */
-    public GenericTableController<T> withRowSorter(TableRowSorter<GenericTableModel<T>> sorter) {
+    public GenericTableController<T> withRowSorter(RowSorter<GenericTableModel<T>> sorter) {
         table.setRowSorter(sorter);
         return this;
     }
     
     /**
-     * The default row sorter will be {@linkplain TableRowSorter}.
+     * The default row sorter will be {@linkplain TableRowSorter}; dictionary-encoded
+     * columns are compared by their row codes (see {@linkplain DictionaryRowSorter})
+     * and asynchronously loaded columns are not sortable.
      * 
      * @return
      */
     public GenericTableController<T> defaultRowSorter() {
-        table.setRowSorter(new TableRowSorter<>(this.model));
+        boolean dictionaries = false;
+        for(int i = 0; i < model.getColumnCount(); i++) {
+            dictionaries |= model.getDictionary(i) != null;
+        }
+        TableRowSorter<GenericTableModel<T>> sorter = dictionaries
+            ? new DictionaryRowSorter<>(this.model) : new TableRowSorter<>(this.model);
+        for(int i = 0; i < model.getColumnCount(); i++) {
+            if(model.isAsync(i)) {
+                // sorting reads every row and would load all of them
+                sorter.setSortable(i, false);
+            }
+        }
+        table.setRowSorter(sorter);
         return this;
     }
     
+    /**
+     * Sort with a {@linkplain GenericRowSorter}, which compares precomputed sort
+     * keys and keeps them between sorts.
+     * 
+     * @return
+     */
+    public GenericTableController<T> genericRowSorter() {
+        table.setRowSorter(new GenericRowSorter<>(this.model));
+        return this;
+    }
+    
+    public JTable getTable() {
+        return table;
+    }
+    
+    public GenericTableModel<T> getModel() {
+        return model;
+    }
+    
     /**
      * Configuration logic that attaches the table model to the configured table.
+     * Table columns are only created for the columns that are not hidden, and are
+     * created again on a structure change of the model.
      */
     private void init() {
-        // attach table model
+        // attach table model; the controller manages the table columns
+        this.table.setAutoCreateColumnsFromModel(false);
         this.table.setModel(this.model);
-        
-        // set up column model
+        createColumns();
+        // rebuild the columns on structure changes, as the table would
+        this.model.addTableModelListener(e -> {
+            if(e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+                createColumns();
+            }
+        });
+    }
+    
+    /**
+     * Replace the table columns with the columns of the model that are not hidden.
+     */
+    private void createColumns() {
+        TableColumnModel columnModel = table.getColumnModel();
+        while(columnModel.getColumnCount() > 0) {
+            columnModel.removeColumn(columnModel.getColumn(0));
+        }
+        hiddenColumns.clear();
+        for(int i = 0; i < model.getColumnCount(); i++) {
+            if(!model.isColumnHidden(i)) {
+                columnModel.addColumn(createColumn(i));
+            }
+        }
+    }
+    
+    private TableColumn createColumn(int modelIndex) {
+        TableColumn column = new TableColumn(modelIndex);
+        column.setHeaderValue(this.model.getColumnName(modelIndex));
+        column.setPreferredWidth(this.model.getColumnWidth(modelIndex));
+        if(column.getHeaderRenderer() != null && column.getHeaderRenderer() instanceof DefaultTableCellRenderer) {
+            ((DefaultTableCellRenderer)column.getHeaderRenderer()).setToolTipText(this.model.getColumnToolTip(modelIndex));
+        }
+        return column;
+    }
+    
+    /**
+     * Show or hide the column at runtime. A hidden column is not painted, sorted,
+     * filtered on or exported; its table column is kept, with its width, to be
+     * shown again at its position in model order.
+     * 
+     * @param modelIndex the column index in the model.
+     * @param visible
+     * @return
+     * @see GenericTableModel#columnHidden(int, boolean)
+     */
+    public GenericTableController<T> setColumnVisible(int modelIndex, boolean visible) {
+        if(modelIndex < 0 || modelIndex >= model.getColumnCount()) {
+            throw new IllegalArgumentException("Invalid column: " + modelIndex);
+        }
         TableColumnModel columnModel = table.getColumnModel();
-        Enumeration<TableColumn> columns = columnModel.getColumns();
-        while(columns.hasMoreElements()) {
-            TableColumn column = columns.nextElement();
-            int index = column.getModelIndex();
-            int width = this.model.getColumnWidth(index);
-            column.setPreferredWidth(width);
-            if(column.getHeaderRenderer() != null && column.getHeaderRenderer() instanceof DefaultTableCellRenderer) {
-                ((DefaultTableCellRenderer)column.getHeaderRenderer()).setToolTipText(this.model.getColumnToolTip(index));
+        int viewIndex = table.convertColumnIndexToView(modelIndex);
+        if(visible && viewIndex < 0) {
+            TableColumn column = hiddenColumns.remove(modelIndex);
+            model.columnHidden(modelIndex, false);
+            columnModel.addColumn(column == null ? createColumn(modelIndex) : column);
+            int target = 0;
+            while(target < columnModel.getColumnCount() - 1 && columnModel.getColumn(target).getModelIndex() < modelIndex) {
+                target++;
+            }
+            columnModel.moveColumn(columnModel.getColumnCount() - 1, target);
+        } else if(!visible && viewIndex >= 0) {
+            TableColumn column = columnModel.getColumn(viewIndex);
+            RowSorter<?> sorter = table.getRowSorter();
+            if(sorter != null) {
+                // stop sorting by the hidden column
+                List<RowSorter.SortKey> keys = new ArrayList<>(sorter.getSortKeys());
+                if(keys.removeIf(k -> k.getColumn() == modelIndex)) {
+                    sorter.setSortKeys(keys);
+                }
             }
+            columnModel.removeColumn(column);
+            hiddenColumns.put(modelIndex, column);
+            model.columnHidden(modelIndex, true);
         }
+        return this;
+    }
+    
+    /**
+     * True if the column is shown on the table.
+     * 
+     * @param modelIndex
+     * @return
+     */
+    public boolean isColumnVisible(int modelIndex) {
+        return table.convertColumnIndexToView(modelIndex) >= 0;
     }
     
     /**
@@ -89,6 +219,17 @@ public class GenericTableController<T> {
         c.accept(model);
     }
     
+    /**
+     * Modify the underlying table model per {@code Consumer} logic as one batch,
+     * notifying the table once with the merged changes.
+     * 
+     * @param c the consumer.
+     * @see GenericTableModel#batch(Consumer)
+     */
+    public void batch(Consumer<GenericTableModel<T>> c) {
+        model.batch(c);
+    }
+    
     /**
      * Notify that the underlying table model may have changed.
      */
@@ -130,6 +271,53 @@ public class GenericTableController<T> {
         return entry;
     }
     
+    /**
+     * The selected entries. When the selection is tracked this takes time
+     * proportional to the selection; otherwise the selected rows are converted to
+     * the model.
+     * 
+     * @return
+     * @see #trackSelection()
+     */
+    public List<T> getSelectedEntries() {
+        if(selection != null) {
+            return selection.getSelectedEntries();
+        }
+        int[] selectedRows = table.getSelectedRows();
+        List<T> entries = new ArrayList<>(selectedRows.length);
+        for(int selectedRow : selectedRows) {
+            entries.add(getEntryAt(selectedRow));
+        }
+        return entries;
+    }
+    
+    /**
+     * Keep the selected entries selected by identity when rows are inserted,
+     * removed, sorted or filtered; the selection is re-applied to the table after
+     * each change without scanning the model.
+     * 
+     * @return
+     */
+    public GenericTableController<T> trackSelection() {
+        return trackSelection(null);
+    }
+    
+    /**
+     * Keep the selected entries selected by the key, e.g. an id, which also
+     * selects the entries replacing the selected entries with
+     * {@linkplain GenericTableModel#setEntries(java.util.Collection)}.
+     * 
+     * @param key the entry key; or null to select by identity.
+     * @return
+     */
+    public GenericTableController<T> trackSelection(Function<T, ?> key) {
+        if(selection != null) {
+            selection.release();
+        }
+        selection = new SelectionTracker<>(table, model, key);
+        return this;
+    }
+    
     /**
      * Remove the selected row if there is a table row selection.
      */
@@ -166,6 +354,58 @@ public class GenericTableController<T> {
         return this.table.getRowCount();
     }
     
+    /**
+     * Export the rows currently visible on the table, in table order, and the table
+     * columns, in column order, to the specified channel. The visible rows and a model
+     * snapshot are captured immediately; the export itself runs in the background.
+     * 
+     * @param channel the target channel, not closed by the export.
+     * @param format
+     * @return the started exporter.
+     */
+    public TableExporter export(WritableByteChannel channel, TableFormat format) {
+        TableExporter exporter = new TableExporter(model, visibleRows(), visibleColumns(), channel, format);
+        exporter.execute();
+        return exporter;
+    }
+    
+    /**
+     * Export the rows currently visible on the table and the table columns, as
+     * {@linkplain #export(WritableByteChannel, TableFormat)}, in the compact binary
+     * layout of {@linkplain TableExporter}.
+     * 
+     * @param channel the target channel, not closed by the export.
+     * @return the started exporter.
+     */
+    public TableExporter exportBinary(WritableByteChannel channel) {
+        TableExporter exporter = new TableExporter(model, visibleRows(), visibleColumns(), channel);
+        exporter.execute();
+        return exporter;
+    }
+    
+    /**
+     * @return the model rows visible on the table, in table order.
+     */
+    private int[] visibleRows() {
+        int[] rows = new int[table.getRowCount()];
+        for(int i = 0; i < rows.length; i++) {
+            rows[i] = table.convertRowIndexToModel(i);
+        }
+        return rows;
+    }
+    
+    /**
+     * @return the model columns of the table, in column order.
+     */
+    private int[] visibleColumns() {
+        TableColumnModel columnModel = table.getColumnModel();
+        int[] columns = new int[columnModel.getColumnCount()];
+        for(int i = 0; i < columns.length; i++) {
+            columns[i] = columnModel.getColumn(i).getModelIndex();
+        }
+        return columns;
+    }
+    
     /**
      * Create a filter based on the specified predicate.
      * 
@@ -184,15 +424,98 @@ public class GenericTableController<T> {
     }
     
     /**
-     * Filter the underlying table.
+     * Create a filter based on the specified predicate that remembers the result
+     * for each row and only re-tests inserted or updated rows.
+     * 
+     * @param include true to include an entry in the table; false to exclude it.
+     * @return
+     * @see CachedRowFilter
+     */
+    public CachedRowFilter<T> createCachedFilter(Predicate<T> include) {
+        return new CachedRowFilter<>(model, include);
+    }
+    
+    /**
+     * Create a filter that includes the rows whose value in the dictionary-encoded
+     * column is one of the specified values; rows are matched by dictionary code.
+     * 
+     * @param columnIndex a dictionary-encoded column.
+     * @param values
+     * @return
+     * @throws IllegalArgumentException if the column is not dictionary-encoded.
+     */
+    public RowFilter<GenericTableModel<T>, Integer> createDictionaryFilter(int columnIndex, Object... values) {
+        ColumnDictionary dictionary = model.getDictionary(columnIndex);
+        if(dictionary == null) {
+            throw new IllegalArgumentException("Column is not dictionary-encoded: " + model.getColumnName(columnIndex));
+        }
+        Object[] included = values.clone();
+        return new RowFilter<GenericTableModel<T>, Integer>() {
+            private final BitSet codes = new BitSet();
+            private int resolved;
+            
+            @Override
+            public boolean include(RowFilter.Entry<? extends GenericTableModel<T>, ? extends Integer> entry) {
+                // values may enter the dictionary after the filter is created
+                if(resolved != dictionary.size()) {
+                    codes.clear();
+                    for(Object value : included) {
+                        int code = dictionary.getCode(value);
+                        if(code >= 0) {
+                            codes.set(code);
+                        }
+                    }
+                    resolved = dictionary.size();
+                }
+                return codes.get(dictionary.getRowCode(entry.getIdentifier()));
+            }
+        };
+    }
+    
+    /**
+     * Filter the underlying table sorted by a {@linkplain DefaultRowSorter} or a
+     * {@linkplain GenericRowSorter}. A previously installed {@linkplain CachedRowFilter}
+     * is released; installing a {@linkplain CachedRowFilter} turns on sorting on updates
+     * so that updated rows are re-tested, until another filter or none is installed.
      * 
      * @param filter
      */
     @SuppressWarnings({ "unchecked", "rawtypes" })
     public void filter(RowFilter<GenericTableModel<T>, Integer> filter) {
         RowSorter<?> sorter = table.getRowSorter();
-        if(sorter != null && sorter instanceof DefaultRowSorter) {
-            ((DefaultRowSorter)sorter).setRowFilter(filter);
+        if(sorter instanceof DefaultRowSorter || sorter instanceof GenericRowSorter) {
+            if(this.filter != filter && this.filter instanceof CachedRowFilter) {
+                ((CachedRowFilter<T>)this.filter).release();
+            }
+            this.filter = filter;
+            if(filter instanceof CachedRowFilter) {
+                if(updatesSorter != sorter) {
+                    updatesSorter = sorter;
+                    sortsOnUpdates = getSortsOnUpdates(sorter);
+                }
+                setSortsOnUpdates(sorter, true);
+            } else if(updatesSorter == sorter) {
+                setSortsOnUpdates(sorter, sortsOnUpdates);
+                updatesSorter = null;
+            }
+            if(sorter instanceof GenericRowSorter) {
+                ((GenericRowSorter<T>)sorter).setRowFilter(filter);
+            } else {
+                ((DefaultRowSorter)sorter).setRowFilter(filter);
+            }
+        }
+    }
+    
+    private static boolean getSortsOnUpdates(RowSorter<?> sorter) {
+        return sorter instanceof GenericRowSorter
+            ? ((GenericRowSorter<?>)sorter).getSortsOnUpdates() : ((DefaultRowSorter<?, ?>)sorter).getSortsOnUpdates();
+    }
+    
+    private static void setSortsOnUpdates(RowSorter<?> sorter, boolean sortsOnUpdates) {
+        if(sorter instanceof GenericRowSorter) {
+            ((GenericRowSorter<?>)sorter).setSortsOnUpdates(sortsOnUpdates);
+        } else {
+            ((DefaultRowSorter<?, ?>)sorter).setSortsOnUpdates(sortsOnUpdates);
         }
     }
 }
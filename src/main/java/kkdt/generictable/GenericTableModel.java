@@ -5,15 +5,39 @@
  */
 package kkdt.generictable;
 
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.event.UndoableEditListener;
 import javax.swing.table.AbstractTableModel;
 
 /**
@@ -34,9 +58,16 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
     private static final long serialVersionUID = -4251620593888597568L;
     
     /**
-     * Storage for all added row entries.
+     * Storage for all added row entries; a {@linkplain Vector} unless the rows are
+     * spilled to a {@linkplain SpillingRowStore}. Declared as a {@linkplain List}
+     * since {@linkplain #spillRows(Supplier, int)}: subclasses assigning or using
+     * it as a {@code Vector} must use the {@code List} methods instead.
      */
-    protected Vector<T> data = new Vector<>();
+    protected List<T> data = new Vector<>();
+    /**
+     * The underlying table model object type.
+     */
+    private final Class<T> type;
     /**
      * All fields from the underlying table model object.
      */
@@ -59,7 +90,7 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
      */
     protected final String[] columnDisplayNames;
     /**
-     * Column tool tips.
+     * Column tool tips; null until first requested for columns not annotated.
      */
     protected final String[] columnTooltips;
     /**
@@ -76,6 +107,89 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
      */
     protected final Function<Object, Void>[] setters;
     
+    /**
+     * Compiled accessors of the columns; null until the column is first read.
+     */
+    private final ColumnAccessor[] accessors;
+    /**
+     * The field, record component or getter and property path of the columns.
+     */
+    private final AnnotatedElement[] members;
+    private final String[] paths;
+    
+    /**
+     * Columns not shown and not captured by snapshots.
+     */
+    private final BitSet hiddenColumns = new BitSet();
+    
+    /**
+     * Derived columns; null for other columns.
+     */
+    private final DerivedColumn<T>[] derived;
+    private boolean hasDerived;
+    /**
+     * True while firing the cell updates of derived columns.
+     */
+    private transient boolean propagating;
+    
+    /**
+     * Asynchronously loaded columns; null for other columns.
+     */
+    private final AsyncColumn<T>[] async;
+    
+    /**
+     * Dictionaries of dictionary-encoded columns; null for other columns.
+     */
+    protected final ColumnDictionary[] dictionaries;
+    
+    /**
+     * Increases with every table event.
+     */
+    private transient long version;
+    /**
+     * True to capture every value for every snapshot instead of keeping chunks.
+     */
+    private transient boolean copySnapshots;
+    /**
+     * The rows and values handed to snapshots, kept up to date by the table events
+     * once a snapshot is taken; null before.
+     */
+    private transient SnapshotChunks<T> snapshotChunks;
+    /**
+     * The most recent snapshot, reused until the next change.
+     */
+    private transient WeakReference<TableSnapshot<T>> snapshot;
+    
+    /**
+     * Age limit of the rows; null if rows never expire.
+     */
+    private transient TimeWindow<T> timeWindow;
+    
+    /**
+     * Events held back by the current batch; null outside a batch.
+     */
+    private transient EventBatch batch;
+    private transient int batchDepth;
+    
+    /**
+     * Posts the undoable edits to the registered listeners.
+     */
+    private final transient UndoJournal<T> journal = new UndoJournal<>(this);
+    
+    /**
+     * Times the model operations; null if not detecting stalls.
+     */
+    private transient StallDetector stallDetector;
+    /**
+     * True while an operation is timed.
+     */
+    private transient boolean timing;
+    
+    /**
+     * Notified after all table model listeners.
+     */
+    private final transient List<TableModelListener> dispatchedListeners = new CopyOnWriteArrayList<>();
+    
     @SuppressWarnings("unchecked")
     public GenericTableModel() {
         // https://stackoverflow.com/questions/3403909/get-generic-type-of-class-at-runtime
@@ -86,10 +200,25 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
         } catch (ClassNotFoundException e) {
             throw new IllegalStateException(String.format("Cannot instantiate table model of type %s: %s", className, e.getMessage()), e);
         }
+        this.type = type;
         
-        // fields from the underlying model object
-        List<Field> _fields = Stream.of(type.getDeclaredFields()).collect(Collectors.toList());
-        int size = _fields.size();
+        // fields, or record components, and annotated getters from the underlying model object
+        List<AnnotatedElement> members = new ArrayList<>();
+        if(type.isRecord()) {
+            members.addAll(Arrays.asList(type.getRecordComponents()));
+        } else {
+            // the fields behind annotated getters are not columns of their own
+            List<Method> methods = Stream.of(type.getDeclaredMethods())
+                .filter(m -> m.isAnnotationPresent(OrderedColumn.class))
+                .sorted(Comparator.comparing(Method::getName))
+                .collect(Collectors.toList());
+            Set<String> properties = methods.stream().map(ColumnAccessor::propertyName).collect(Collectors.toSet());
+            Stream.of(type.getDeclaredFields())
+                .filter(f -> f.isAnnotationPresent(OrderedColumn.class) || !properties.contains(f.getName()))
+                .forEach(members::add);
+            members.addAll(methods);
+        }
+        int size = members.size();
         
         // sync up all array sizes
         fields = new Field[size];
@@ -101,12 +230,18 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
         editableColumns = new Boolean[size];
         getters = new Function[size];
         setters = new Function[size];
+        dictionaries = new ColumnDictionary[size];
+        accessors = new ColumnAccessor[size];
+        this.members = new AnnotatedElement[size];
+        paths = new String[size];
+        derived = new DerivedColumn[size];
+        async = new AsyncColumn[size];
         
         // slot the designated columns first
         Vector<Integer> nonColumnIndices = new Vector<>();
         for(int i = 0; i < size; i++) {
-            Field f = _fields.get(i);
-            OrderedColumn t = f.getAnnotation(OrderedColumn.class);
+            AnnotatedElement m = members.get(i);
+            OrderedColumn t = m.getAnnotation(OrderedColumn.class);
             if(t != null) {
                 int columnIndex = t.index();
                 if(columnNames[columnIndex] != null || columnTypes[columnIndex] != null 
@@ -114,33 +249,96 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
                     || columnTooltips[columnIndex] != null || columnWidths[columnIndex] != null
                     || editableColumns[columnIndex] != null) 
                 {
-                    throw new IllegalStateException("Duplicate column index in annotation: " + f);
+                    throw new IllegalStateException("Duplicate column index in annotation: " + m);
                 }
                 columnNames[columnIndex] = t.name();
                 columnTypes[columnIndex] = t.type();
                 columnDisplayNames[columnIndex] = t.displayName();
                 columnTooltips[columnIndex] = t.toolTip();
                 columnWidths[columnIndex] = t.width();
+                if(t.editable() && t.path().isEmpty() && isReadOnly(m)) {
+                    throw new IllegalStateException("Editable column cannot be set: " + m);
+                }
                 editableColumns[columnIndex] = t.editable();
-                fields[columnIndex] = f;
+                fields[columnIndex] = field(type, m);
+                this.members[columnIndex] = m;
+                paths[columnIndex] = t.path();
+                if(!t.path().isEmpty()) {
+                    // resolve the path now so an invalid path fails fast
+                    accessors[columnIndex] = accessor(m, t.path());
+                    if(t.editable() && !accessors[columnIndex].isWritable()) {
+                        throw new IllegalStateException("Editable column cannot be set: " + m);
+                    }
+                }
+                if(t.dictionary()) {
+                    dictionaries[columnIndex] = new ColumnDictionary();
+                }
+                hiddenColumns.set(columnIndex, t.hidden());
             } else {
                 nonColumnIndices.add(i);
             }
         }
         
-        // fill in the model attributes not annotated as columns
-        nonColumnIndices.forEach(index -> {
-            Field f = _fields.get(index);
+        // fill in the model attributes not annotated as columns in the remaining slots
+        nonColumnIndices.forEach(i -> {
+            AnnotatedElement m = members.get(i);
+            int index = i;
+            if(columnNames[index] != null) {
+                index = 0;
+                while(columnNames[index] != null) {
+                    index++;
+                }
+            }
+            Field f = field(this.type, m);
             columnNames[index] = f.getName();
             columnTypes[index] = f.getType();
             columnDisplayNames[index] = f.getName();
-            columnTooltips[index] = f.toGenericString();
             columnWidths[index] = 50;
             editableColumns[index] = false;
             fields[index] = f;
+            this.members[index] = m;
         });
     }
     
+    /**
+     * True if a column without path cannot be set: a record component, a final
+     * field or a getter without setter.
+     */
+    private static boolean isReadOnly(AnnotatedElement member) {
+        if(member instanceof Field) {
+            return Modifier.isFinal(((Field)member).getModifiers());
+        }
+        return member instanceof RecordComponent || ColumnAccessor.findSetter((Method)member) == null;
+    }
+    
+    /**
+     * The field of a field or record component column; null for a method column.
+     */
+    private static Field field(Class<?> type, AnnotatedElement member) {
+        if(member instanceof Field) {
+            return (Field)member;
+        }
+        if(member instanceof RecordComponent) {
+            try {
+                return type.getDeclaredField(((RecordComponent)member).getName());
+            } catch (NoSuchFieldException e) {
+                throw new IllegalStateException("Cannot find record component field: " + member, e);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Compile the accessor of a field, record component or getter column.
+     */
+    private static ColumnAccessor accessor(AnnotatedElement member, String path) {
+        if(member instanceof Field) {
+            return ColumnAccessor.of((Field)member, path);
+        }
+        Method getter = member instanceof RecordComponent ? ((RecordComponent)member).getAccessor() : (Method)member;
+        return ColumnAccessor.of(getter, ColumnAccessor.findSetter(getter), path);
+    }
+    
     /**
      * Assign the value-get function to the specified column index.
      * 
@@ -167,6 +365,139 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
         return this;
     }
     
+    /**
+     * Compute the specified column from other columns of the entry. The computed
+     * value is cached per row and only computed again when the row is updated or
+     * one of the source columns changes via a cell update (e.g.
+     * {@linkplain #setValueAt(Object, int, int)}), in which case a cell update is
+     * also fired for this column.
+     * 
+     * @param columnIndex
+     * @param compute
+     * @param sourceColumns the columns the computed value depends on.
+     * @return
+     * @throws ArrayIndexOutOfBoundsException
+     * @throws IllegalArgumentException if the sources lead back to the column.
+     */
+    public GenericTableModel<T> columnDerive(int columnIndex, Function<T, Object> compute, int... sourceColumns) {
+        Objects.requireNonNull(compute);
+        DerivedColumn<T> column = new DerivedColumn<>(compute, sourceColumns);
+        if(dependsOn(column, columnIndex)) {
+            throw new IllegalArgumentException("Derived column depends on itself: " + getColumnName(columnIndex));
+        }
+        column.reset(getRowCount());
+        derived[columnIndex] = column;
+        hasDerived = true;
+        return this;
+    }
+    
+    /**
+     * Load the specified column in the background, with a cache of up to 1024
+     * loaded values.
+     * 
+     * @param columnIndex
+     * @param loader
+     * @param placeholder
+     * @return
+     * @see #columnAsync(int, Function, Object, int)
+     */
+    public GenericTableModel<T> columnAsync(int columnIndex, Function<T, Object> loader, Object placeholder) {
+        return columnAsync(columnIndex, loader, placeholder, 1024);
+    }
+    
+    /**
+     * <p>
+     * Load the specified column in the background, e.g. for values from an
+     * expensive lookup. {@linkplain #getValueAt(int, int)}, which renderers call
+     * for the visible cells only, returns the placeholder right away and starts
+     * loading the value on a virtual thread; a cell update is fired on the EDT
+     * once the value arrives.
+     * </p>
+     * 
+     * <p>
+     * Loaded values are cached per entry, up to the specified capacity. Other
+     * value reads such as {@linkplain #getColumnValue(Object, int)} and
+     * {@linkplain #snapshot()} see the cached value or the placeholder and never
+     * start a load. Sorting or filtering on the column through
+     * {@linkplain #getValueAt(int, int)} forces a load of every row and sees the
+     * placeholder until loaded; sorting on the column is disabled by
+     * {@linkplain GenericTableController#defaultRowSorter()}. At most as many
+     * loads as the capacity are pending, the least recently read are cancelled
+     * first, and loads of removed rows are cancelled.
+     * </p>
+     * 
+     * @param columnIndex
+     * @param loader called on a background thread.
+     * @param placeholder the value until loaded.
+     * @param capacity maximum cached values.
+     * @return
+     * @throws ArrayIndexOutOfBoundsException
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public GenericTableModel<T> columnAsync(int columnIndex, Function<T, Object> loader, Object placeholder, int capacity) {
+        Objects.requireNonNull(loader, "Required non-null loader");
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        AsyncColumn<T> column = new AsyncColumn<>(loader, placeholder, capacity);
+        if(async[columnIndex] != null) {
+            async[columnIndex].shutdown();
+        }
+        async[columnIndex] = column;
+        return this;
+    }
+    
+    /**
+     * True if the column is loaded in the background.
+     * 
+     * @param columnIndex
+     * @return
+     * @see #columnAsync(int, Function, Object, int)
+     */
+    public boolean isAsync(int columnIndex) {
+        return async[columnIndex] != null;
+    }
+    
+    /**
+     * Drop the loaded values of an asynchronously loaded column so they are loaded
+     * again when rendered.
+     * 
+     * @param columnIndex
+     */
+    public void reloadAsync(int columnIndex) {
+        if(async[columnIndex] != null) {
+            async[columnIndex].clear();
+            if(getRowCount() > 0) {
+                fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1, columnIndex));
+            }
+        }
+    }
+    
+    /**
+     * Fire the cell update for the loaded value of the entry, wherever the entry
+     * is now.
+     */
+    private void asyncLoaded(T entry, int rowIndex, int columnIndex) {
+        if(rowIndex >= 0 && rowIndex < getRowCount() && getEntry(rowIndex) == entry) {
+            fireTableCellUpdated(rowIndex, columnIndex);
+        } else if(getRowCount() > 0) {
+            // the row is not known after all rows changed; repaint the column
+            fireTableChanged(new TableModelEvent(this, 0, getRowCount() - 1, columnIndex));
+        }
+    }
+    
+    private boolean dependsOn(DerivedColumn<T> column, int columnIndex) {
+        if(column.dependsOn(columnIndex)) {
+            return true;
+        }
+        for(int c = 0; c < derived.length; c++) {
+            if(derived[c] != null && column.dependsOn(c) && dependsOn(derived[c], columnIndex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @Override
     public String getColumnName(int columnIndex) {
         return columnNames[columnIndex];
@@ -189,11 +520,17 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
     
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        T entry = getEntry(rowIndex);
-        if(getters[columnIndex] != null) {
-            return getters[columnIndex].apply(entry);
+        if(derived[columnIndex] != null) {
+            return derived[columnIndex].get(rowIndex, getEntry(rowIndex));
         }
-        return getFieldValue(columnIndex, entry);
+        if(async[columnIndex] != null) {
+            return async[columnIndex].get(getEntry(rowIndex), rowIndex, (entry, row) -> asyncLoaded(entry, row, columnIndex));
+        }
+        ColumnDictionary dictionary = dictionaries[columnIndex];
+        if(dictionary != null) {
+            return dictionary.getValue(dictionary.getRowCode(rowIndex));
+        }
+        return getColumnValue(getEntry(rowIndex), columnIndex);
     }
     
     @Override
@@ -203,14 +540,435 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
     
     @Override
     public void setValueAt(Object value, int rowIndex, int columnIndex) {
-        if(isCellEditable(rowIndex, columnIndex)) {
-            if(setters[columnIndex] != null) {
-                setters[columnIndex].apply(value);
-            } else {
+        timed(() -> describe("Edit", rowIndex, rowIndex), () -> {
+            if(isCellEditable(rowIndex, columnIndex)) {
                 T entry = getEntry(rowIndex);
-                setFieldValue(columnIndex, entry, value);
+                boolean recording = journal.isRecording();
+                Object oldValue = recording ? getColumnValue(entry, columnIndex) : null;
+                applyValue(entry, columnIndex, value);
+                fireTableCellUpdated(rowIndex, columnIndex);
+                if(recording) {
+                    journal.recordCell(entry, rowIndex, columnIndex, oldValue, value);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Set the column value of the entry without notifying listeners.
+     */
+    void applyValue(T entry, int columnIndex, Object value) {
+        if(setters[columnIndex] != null) {
+            setters[columnIndex].apply(value);
+        } else {
+            setFieldValue(columnIndex, entry, value);
+        }
+    }
+    
+    /**
+     * Post the undoable edits of this model, e.g. to an {@linkplain javax.swing.undo.UndoManager}
+     * whose limit bounds the memory held by the edits. An edit records only the
+     * changed cell or the inserted or removed entries; the changes of a
+     * {@linkplain #batch(Consumer)} are one edit. Undo and redo fire the same
+     * minimal events as the original change.
+     * 
+     * @param listener
+     */
+    public void addUndoableEditListener(UndoableEditListener listener) {
+        journal.addUndoableEditListener(listener);
+    }
+    
+    public void removeUndoableEditListener(UndoableEditListener listener) {
+        journal.removeUndoableEditListener(listener);
+    }
+    
+    @Override
+    public void fireTableChanged(TableModelEvent e) {
+        timed(() -> describe(e), () -> {
+            trackChanges(e);
+            BitSet affected = propagating || !hasDerived ? null : invalidateDerived(e);
+            if(snapshotChunks != null) {
+                // after the derived columns, whose values are captured
+                snapshotChunks.changed(e);
+            }
+            if(batch != null) {
+                batch.record(e, getRowCount());
+            } else {
+                dispatch(e);
+            }
+            if(timeWindow != null && e.getType() != TableModelEvent.DELETE) {
+                timeWindow.schedule();
+            }
+            if(affected != null) {
+                propagating = true;
+                try {
+                    for(int c = affected.nextSetBit(0); c >= 0; c = affected.nextSetBit(c + 1)) {
+                        fireTableChanged(new TableModelEvent(this, e.getFirstRow(), e.getLastRow(), c));
+                    }
+                } finally {
+                    propagating = false;
+                }
+            }
+        });
+    }
+    
+    /**
+     * Notify the listeners, then the listeners waiting for all listeners.
+     */
+    private void dispatch(TableModelEvent e) {
+        super.fireTableChanged(e);
+        for(TableModelListener listener : dispatchedListeners) {
+            listener.tableChanged(e);
+        }
+    }
+    
+    /**
+     * Notify the listener of every event after all table model listeners, e.g. the
+     * table and its row sorter, have processed it.
+     * 
+     * @param listener
+     */
+    void addDispatchedListener(TableModelListener listener) {
+        dispatchedListeners.add(listener);
+    }
+    
+    void removeDispatchedListener(TableModelListener listener) {
+        dispatchedListeners.remove(listener);
+    }
+    
+    /**
+     * <p>
+     * Apply the changes as one transaction: listeners are not notified until the
+     * end of the batch and then receive the fewest events covering every change,
+     * e.g. one delete per run of removed rows, one update per run of updated rows
+     * and column, and one insert for all appended rows. Inserts before the end
+     * collapse into a single data change.
+     * </p>
+     * 
+     * <p>
+     * Batches may be nested; events are held until the outermost batch ends. The
+     * batch should run on the EDT so the table does not see the model before it
+     * has been notified.
+     * </p>
+     * 
+     * <p>
+     * The changes are undone and redone together.
+     * </p>
+     * 
+     * @param changes
+     * @see #addUndoableEditListener(UndoableEditListener)
+     */
+    public void batch(Consumer<GenericTableModel<T>> changes) {
+        Objects.requireNonNull(changes, "Required non-null changes");
+        timed(() -> "Batch on " + type.getSimpleName(), () -> {
+            if(batchDepth++ == 0) {
+                batch = new EventBatch();
+            }
+            // replayed edits must not post a new edit
+            boolean transaction = !journal.isReplaying();
+            if(transaction) {
+                journal.beginUpdate();
+            }
+            try {
+                changes.accept(this);
+            } finally {
+                if(transaction) {
+                    journal.endUpdate();
+                }
+                if(--batchDepth == 0) {
+                    EventBatch ended = batch;
+                    batch = null;
+                    for(TableModelEvent e : ended.events(this, getRowCount())) {
+                        dispatch(e);
+                    }
+                }
+            }
+        });
+    }
+    
+    /**
+     * Detect operations holding the thread they run on (usually the EDT) too long:
+     * the public changes of the model, e.g. {@linkplain #setEntries(Collection)},
+     * {@linkplain #evictExpired()} or a {@linkplain #batch(Consumer)}, and the
+     * events they fire including the listeners, e.g. the table and its row sorter,
+     * and the derived columns; and taking a {@linkplain #snapshot()}. Each operation
+     * is timed as a whole; the operations it runs are not timed on their own.
+     * 
+     * @param detector the detector; or null to stop detecting stalls.
+     * @return
+     */
+    public GenericTableModel<T> detectStalls(StallDetector detector) {
+        this.stallDetector = detector;
+        return this;
+    }
+    
+    /**
+     * @return the stall detector; or null if not detecting stalls.
+     */
+    StallDetector getStallDetector() {
+        return stallDetector;
+    }
+    
+    private void timed(Supplier<String> operation, Runnable change) {
+        timedCall(operation, () -> {
+            change.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Run the operation, timing it unless it runs within a timed operation.
+     */
+    private <R> R timedCall(Supplier<String> operation, Supplier<R> call) {
+        StallDetector detector = stallDetector;
+        if(detector == null || timing) {
+            return call.get();
+        }
+        timing = true;
+        long start = detector.start();
+        try {
+            return call.get();
+        } finally {
+            timing = false;
+            detector.end(start, operation);
+        }
+    }
+    
+    private String describe(String change, int firstRow, int lastRow) {
+        return String.format("%s of rows %d-%d on %s", change, firstRow, lastRow, type.getSimpleName());
+    }
+    
+    private String describe(TableModelEvent e) {
+        String change = e.getType() == TableModelEvent.INSERT ? "Insert" : e.getType() == TableModelEvent.DELETE ? "Delete" : "Update";
+        if(e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+            return "Structure change on " + type.getSimpleName();
+        }
+        if(e.getLastRow() == Integer.MAX_VALUE) {
+            return "Data change on " + type.getSimpleName();
+        }
+        return String.format("%s of rows %d-%d on %s", change, e.getFirstRow(), e.getLastRow(), type.getSimpleName());
+    }
+    
+    /**
+     * An immutable snapshot of the rows and the values of the shown columns that may
+     * be read from any thread; when called off the EDT the caller waits for the EDT.
+     * Taking a snapshot copies nothing: the model keeps its rows and values in chunks
+     * from the first snapshot on and copies only the chunks the table events change
+     * while a snapshot holds them (see {@linkplain TableSnapshot}). A model whose rows
+     * are spilled captures every value instead.
+     * 
+     * @return
+     * @see TableSnapshot
+     * @see #retainSnapshots(boolean)
+     */
+    public TableSnapshot<T> snapshot() {
+        return onEdt(this::takeSnapshot);
+    }
+    
+    /**
+     * A snapshot holding at least the specified rows and columns, e.g. for an export;
+     * when the columns are not all shown or the model does not keep chunks, only the
+     * chunks holding the rows are captured.
+     * 
+     * @param rows model row indices.
+     * @param columns model column indices.
+     * @return
+     */
+    TableSnapshot<T> snapshot(int[] rows, int[] columns) {
+        return onEdt(() -> timedCall(() -> String.format("Snapshot of %d rows on %s", rows.length, type.getSimpleName()), () -> {
+            boolean[] captured = new boolean[getColumnCount()];
+            boolean shown = true;
+            for(int c : columns) {
+                captured[c] = true;
+                shown &= !isColumnHidden(c);
+            }
+            if(shown && keepsChunks()) {
+                return takeSnapshot();
+            }
+            BitSet chunks = new BitSet();
+            for(int row : rows) {
+                chunks.set(row / TableSnapshot.CHUNK_SIZE);
+            }
+            return TableSnapshot.of(this, version, captured, chunks);
+        }));
+    }
+    
+    /**
+     * Keep the rows and values of the shown columns in chunks, updated by the table
+     * events, so that a snapshot copies nothing (default true). The model then holds
+     * one copy of those values, shared with its snapshots, and every event copies the
+     * values of the rows it changes. Without, every snapshot captures every value.
+     * 
+     * @param retain
+     * @return
+     */
+    public GenericTableModel<T> retainSnapshots(boolean retain) {
+        this.copySnapshots = !retain;
+        if(!retain) {
+            snapshotChunks = null;
+            snapshot = null;
+        }
+        return this;
+    }
+    
+    private boolean keepsChunks() {
+        // chunks would keep every spilled row on the heap
+        return !copySnapshots && !(data instanceof SpillingRowStore);
+    }
+    
+    private <R> R onEdt(Supplier<R> capture) {
+        if(SwingUtilities.isEventDispatchThread()) {
+            return capture.get();
+        }
+        AtomicReference<R> result = new AtomicReference<>();
+        try {
+            SwingUtilities.invokeAndWait(() -> result.set(capture.get()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while taking snapshot", e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Cannot take snapshot: " + e.getCause().getMessage(), e.getCause());
+        }
+        return result.get();
+    }
+    
+    private TableSnapshot<T> takeSnapshot() {
+        return timedCall(() -> String.format("Snapshot of %d rows on %s", getRowCount(), type.getSimpleName()), () -> {
+            if(!keepsChunks()) {
+                return TableSnapshot.of(this, version, null, null);
+            }
+            TableSnapshot<T> last = snapshot == null ? null : snapshot.get();
+            if(last == null || last.getVersion() != version) {
+                if(snapshotChunks == null) {
+                    snapshotChunks = new SnapshotChunks<>(this);
+                }
+                last = snapshotChunks.snapshot(version);
+                snapshot = new WeakReference<>(last);
+            }
+            return last;
+        });
+    }
+    
+    /**
+     * Bring the dictionary row codes and the pending asynchronous loads in line with
+     * the event before any listener is notified.
+     * 
+     * @param e
+     */
+    private void trackChanges(TableModelEvent e) {
+        version++;
+        encodeRows(e);
+        journal.rowsChanged(e);
+        for(AsyncColumn<T> column : async) {
+            if(column != null) {
+                column.rowsChanged(e);
+            }
+        }
+    }
+    
+    /**
+     * Keep the cached rows of derived columns in line with the event.
+     * 
+     * @param e
+     * @return the derived columns, directly or transitively, depending on the column
+     *         of a cell update; or null.
+     */
+    private BitSet invalidateDerived(TableModelEvent e) {
+        BitSet affected = null;
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        boolean all = first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE;
+        for(int c = 0; c < derived.length; c++) {
+            DerivedColumn<T> column = derived[c];
+            if(column == null) {
+                continue;
+            }
+            if(all) {
+                column.reset(getRowCount());
+            } else if(e.getType() == TableModelEvent.INSERT) {
+                column.insertRows(first, last - first + 1);
+            } else if(e.getType() == TableModelEvent.DELETE) {
+                column.deleteRows(first, last - first + 1);
+            } else if(e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() == c) {
+                column.invalidate(first, last);
+            }
+        }
+        
+        // cell updates ripple through the derived columns depending on the cell
+        if(!all && e.getType() == TableModelEvent.UPDATE && e.getColumn() != TableModelEvent.ALL_COLUMNS) {
+            BitSet changed = new BitSet();
+            changed.set(e.getColumn());
+            boolean more = true;
+            while(more) {
+                more = false;
+                for(int c = 0; c < derived.length; c++) {
+                    if(derived[c] != null && !changed.get(c) && derived[c].dependsOnAny(changed)) {
+                        derived[c].invalidate(first, last);
+                        changed.set(c);
+                        if(affected == null) {
+                            affected = new BitSet();
+                        }
+                        affected.set(c);
+                        more = true;
+                    }
+                }
+            }
+        }
+        return affected;
+    }
+    
+    /**
+     * The dictionary of a dictionary-encoded column.
+     * 
+     * @param columnIndex
+     * @return the dictionary; or null if the column is not dictionary-encoded.
+     * @see OrderedColumn#dictionary()
+     */
+    public ColumnDictionary getDictionary(int columnIndex) {
+        return dictionaries[columnIndex];
+    }
+    
+    /**
+     * Keep the row codes of dictionary-encoded columns in line with the event and
+     * replace the column values of changed rows with the canonical instances.
+     * 
+     * @param e
+     */
+    private void encodeRows(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        boolean all = first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE;
+        for(int c = 0; c < dictionaries.length; c++) {
+            ColumnDictionary dictionary = dictionaries[c];
+            if(dictionary == null) {
+                continue;
+            }
+            if(all) {
+                dictionary.clearRows();
+                dictionary.insertRows(0, getRowCount());
+                encodeRows(c, 0, getRowCount() - 1);
+            } else if(e.getType() == TableModelEvent.INSERT) {
+                dictionary.insertRows(first, last - first + 1);
+                encodeRows(c, first, last);
+            } else if(e.getType() == TableModelEvent.DELETE) {
+                dictionary.deleteRows(first, last - first + 1);
+            } else if(e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() == c) {
+                encodeRows(c, first, last);
+            }
+        }
+    }
+    
+    private void encodeRows(int columnIndex, int first, int last) {
+        ColumnDictionary dictionary = dictionaries[columnIndex];
+        for(int row = first; row <= last; row++) {
+            T entry = getEntry(row);
+            Object value = getColumnValue(entry, columnIndex);
+            int code = dictionary.encode(value);
+            dictionary.setRowCode(row, code);
+            Object canonical = dictionary.getValue(code);
+            if(canonical != value && getters[columnIndex] == null && isWritable(columnIndex)) {
+                setFieldValue(columnIndex, entry, canonical);
             }
-            fireTableCellUpdated(rowIndex, columnIndex);
         }
     }
     
@@ -230,9 +988,35 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
      * @return
      */
     public String getColumnToolTip(int columnIndex) {
+        if(columnTooltips[columnIndex] == null && fields[columnIndex] != null) {
+            columnTooltips[columnIndex] = fields[columnIndex].toGenericString();
+        }
         return columnTooltips[columnIndex];
     }
     
+    /**
+     * Hide or show the column. Hidden columns are not captured by snapshots, so
+     * they are not read by exports; the table columns are shown and hidden through
+     * {@linkplain GenericTableController#setColumnVisible(int, boolean)}.
+     * 
+     * @param columnIndex
+     * @param hidden
+     * @return
+     */
+    public GenericTableModel<T> columnHidden(int columnIndex, boolean hidden) {
+        if(hiddenColumns.get(columnIndex) != hidden) {
+            hiddenColumns.set(columnIndex, hidden);
+            // the chunks capture the shown columns
+            snapshotChunks = null;
+            snapshot = null;
+        }
+        return this;
+    }
+    
+    public boolean isColumnHidden(int columnIndex) {
+        return hiddenColumns.get(columnIndex);
+    }
+    
     /**
      * Get the underlying model object at the specified row.
      * 
@@ -243,26 +1027,232 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
         return data.get(rowIndex);
     }
     
+    /**
+     * The column value of the specified entry, regardless of where the entry
+     * is in the model.
+     * 
+     * @param entry
+     * @param columnIndex
+     * @return
+     */
+    public Object getColumnValue(T entry, int columnIndex) {
+        if(derived[columnIndex] != null) {
+            return derived[columnIndex].compute(entry);
+        }
+        if(async[columnIndex] != null) {
+            return async[columnIndex].peek(entry);
+        }
+        if(getters[columnIndex] != null) {
+            return getters[columnIndex].apply(entry);
+        }
+        return getFieldValue(columnIndex, entry);
+    }
+    
     /**
      * Add the specified row data to the model.
      * 
      * @param entry
      */
     public void addEntry(T entry) {
-        Objects.requireNonNull(entry);
-        int rowCount = getRowCount();
-        data.addElement(entry);
-        fireTableRowsInserted(rowCount, rowCount);
+        timed(() -> describe("Add", getRowCount() - 1, getRowCount() - 1), () -> {
+            Objects.requireNonNull(entry);
+            int rowCount = getRowCount();
+            data.add(entry);
+            fireTableRowsInserted(rowCount, rowCount);
+            if(journal.isRecording()) {
+                journal.recordInsert(rowCount, Collections.singletonList(entry));
+            }
+        });
+    }
+    
+    /**
+     * Add all the specified row data to the model as a single insert.
+     *
+     * @param entries
+     */
+    public void addEntries(Collection<? extends T> entries) {
+        timed(() -> describe("Add", getRowCount() - entries.size(), getRowCount() - 1), () -> {
+            Objects.requireNonNull(entries);
+            if(!entries.isEmpty()) {
+                entries.forEach(Objects::requireNonNull);
+                int rowCount = getRowCount();
+                data.addAll(entries);
+                fireTableRowsInserted(rowCount, rowCount + entries.size() - 1);
+                if(journal.isRecording()) {
+                    journal.recordInsert(rowCount, data.subList(rowCount, getRowCount()));
+                }
+            }
+        });
+    }
+
+    /**
+     * Replace all entries in the model with the specified row data as a single
+     * data change.
+     *
+     * @param entries
+     */
+    public void setEntries(Collection<? extends T> entries) {
+        timed(() -> describe("Replace", 0, getRowCount() - 1), () -> {
+            Objects.requireNonNull(entries);
+            entries.forEach(Objects::requireNonNull);
+            boolean recording = journal.isRecording();
+            List<T> previous = recording ? journal.keep(data, entries.size()) : null;
+            data.clear();
+            data.addAll(entries);
+            fireTableDataChanged();
+            if(recording) {
+                journal.recordReplace(previous, data);
+            }
+        });
+    }
+
+    /**
+     * Keep only the rows whose timestamp in the specified column is within the
+     * window, using the system clock.
+     * 
+     * @param columnIndex
+     * @param window
+     * @return
+     * @see #timeWindow(int, Duration, Clock)
+     */
+    public GenericTableModel<T> timeWindow(int columnIndex, Duration window) {
+        return timeWindow(columnIndex, window, Clock.systemUTC());
+    }
+    
+    /**
+     * <p>
+     * Keep only the rows whose timestamp in the specified column is within the
+     * window. The column holds an {@linkplain java.time.Instant}, a
+     * {@linkplain java.util.Date}, epoch milliseconds or a date-time; rows
+     * without a timestamp expire right away.
+     * </p>
+     * 
+     * <p>
+     * Rows are expected in arrival order (oldest first) as added by
+     * {@linkplain #addEntry(Object)} and {@linkplain #addEntries(Collection)}.
+     * Expired rows are removed from the front of the model in one delete event
+     * per eviction; eviction runs on the EDT when the oldest row expires by the
+     * specified clock. Evictions are recorded by the undo journal, so edits of
+     * evicted rows can no longer be undone.
+     * </p>
+     * 
+     * @param columnIndex
+     * @param window
+     * @param clock the time source.
+     * @return
+     * @throws IllegalArgumentException if the column is not a timestamp or the
+     *         window is not positive.
+     * @see #evictExpired()
+     */
+    public GenericTableModel<T> timeWindow(int columnIndex, Duration window, Clock clock) {
+        Objects.requireNonNull(window, "Required non-null window");
+        Objects.requireNonNull(clock, "Required non-null clock");
+        TimeWindow<T> next = new TimeWindow<>(this, columnIndex, window, clock);
+        clearTimeWindow();
+        timeWindow = next;
+        evictExpired();
+        return this;
+    }
+    
+    /**
+     * Stop expiring rows.
+     */
+    public void clearTimeWindow() {
+        if(timeWindow != null) {
+            timeWindow.stop();
+            timeWindow = null;
+        }
+    }
+    
+    /**
+     * Remove the expired rows at the front of the model now, in a single
+     * {@linkplain GenericTableModelEvent} with the removed entries. Call after
+     * moving the clock of the time window ahead, as the timer is armed for the
+     * expiry by the clock when last read.
+     * 
+     * @return total rows removed.
+     * @see #timeWindow(int, Duration, Clock)
+     */
+    public int evictExpired() {
+        return timedCall(() -> "Eviction on " + type.getSimpleName(), () -> {
+            if(timeWindow == null) {
+                return 0;
+            }
+            long now = timeWindow.now();
+            int count = 0;
+            while(count < data.size() && timeWindow.isExpired(data.get(count), now)) {
+                count++;
+            }
+            if(count > 0) {
+                List<T> expired = data.subList(0, count);
+                List<T> removed = new ArrayList<>(expired);
+                expired.clear();
+                fireTableChanged(new GenericTableModelEvent<>(this, 0, count - 1, TableModelEvent.DELETE, removed));
+                journal.recordEviction(count);
+            }
+            timeWindow.schedule();
+            return count;
+        });
+    }
+    
+    /**
+     * <p>
+     * Keep at most the specified number of rows on the heap and spill the rest to
+     * a temporary file (see {@linkplain SpillingRowStore}). The current rows are
+     * moved to the new store; no table event is fired.
+     * </p>
+     * 
+     * <p>
+     * Entries referenced outside of the store, e.g. by the selection, a
+     * {@linkplain TopNTableModel}, the undo history or the
+     * {@linkplain #columnAsync(int, Function, Object)} caches, are the same instances
+     * when read back, so features tracking entries by identity keep working. Other
+     * rows are created again by the factory.
+     * </p>
+     * 
+     * @param factory creates the entries read back from the file.
+     * @param residentRows
+     * @return the store, e.g. for its hit and miss counters.
+     * @throws IllegalArgumentException if a field of the entry type has no binary form.
+     * @throws IllegalStateException if the temporary file cannot be created.
+     */
+    public SpillingRowStore<T> spillRows(Supplier<T> factory, int residentRows) {
+        SpillingRowStore<T> store;
+        try {
+            store = new SpillingRowStore<>(type, factory, residentRows);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create row file: " + e.getMessage(), e);
+        }
+        store.addAll(data);
+        List<T> previous = data;
+        data = store;
+        // snapshots capture spilled rows instead of keeping them in chunks
+        snapshotChunks = null;
+        snapshot = null;
+        if(previous instanceof SpillingRowStore) {
+            try {
+                ((SpillingRowStore<T>)previous).close();
+            } catch (IOException e) {
+                // the file is deleted on exit
+            }
+        }
+        return store;
     }
     
     /**
-     * Remove the specified entry at the specified row.
+     * Remove the specified entry at the specified row. Listeners receive a
+     * {@linkplain GenericTableModelEvent} with the removed entry.
      * 
      * @param row
      */
     public void removeEntryAt(int row) {
-        data.removeElementAt(row);
-        fireTableRowsDeleted(row, row);
+        timed(() -> describe("Remove", row, row), () -> {
+            T entry = data.remove(row);
+            fireTableChanged(new GenericTableModelEvent<>(this, row, row, TableModelEvent.DELETE, Collections.singletonList(entry)));
+            if(journal.isRecording()) {
+                journal.recordRemove(row, Collections.singletonList(entry));
+            }
+        });
     }
     
     /**
@@ -276,20 +1266,27 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
     }
     
     /**
-     * Remove all entries in the model.
+     * Remove all entries in the model. Listeners receive a
+     * {@linkplain GenericTableModelEvent} with the removed entries.
      */
     public void removeAll() {
-        int rowCount = getRowCount();
-        if(rowCount > 0) {
-            data.removeAllElements();
-            fireTableRowsDeleted(0, rowCount - 1);
-        }
+        timed(() -> "Removal of all rows on " + type.getSimpleName(), () -> {
+            int rowCount = getRowCount();
+            if(rowCount > 0) {
+                List<T> removed = new ArrayList<>(data);
+                data.clear();
+                fireTableChanged(new GenericTableModelEvent<>(this, 0, rowCount - 1, TableModelEvent.DELETE, removed));
+                if(journal.isRecording()) {
+                    journal.recordRemove(0, removed);
+                }
+            }
+        });
     }
     
     /**
-     * Use reflection to obtain the field for the specified object. This is the
-     * default mechanism for obtaining column values and is not recommended since
-     * reflection could potentially have huge overhead for the underlying type.
+     * Obtain the field, record component or getter value for the specified object
+     * through the accessor compiled when the column is first read. This is the default
+     * mechanism for obtaining column values.
      * 
      * @param columnIndex
      * @param obj
@@ -297,42 +1294,52 @@ public abstract class GenericTableModel<T> extends AbstractTableModel {
      * @see #columnGet(int, Function)
      */
     protected Object getFieldValue(int columnIndex, Object obj) {
-        Object value = null;
-        Field f = fields[columnIndex];
-        if(f != null) {
-            f.setAccessible(true);
-            try {
-                value = f.get(obj);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Cannot obtain value at columnIndex: " + columnIndex + " - " + e.getMessage(), e);
-            } finally {
-                f.setAccessible(false);
-            }
+        ColumnAccessor accessor = accessor(columnIndex);
+        return accessor == null ? null : accessor.get(obj);
+    }
+    
+    /**
+     * The compiled accessor of the specified column, which can be used from a
+     * background thread.
+     * 
+     * @param columnIndex
+     * @return the accessor; or null if the column has no field or getter.
+     */
+    ColumnAccessor accessor(int columnIndex) {
+        ColumnAccessor accessor = accessors[columnIndex];
+        if(accessor == null && members[columnIndex] != null) {
+            // compiled on first use; columns never read cost nothing
+            accessor = accessor(members[columnIndex], paths[columnIndex]);
+            accessors[columnIndex] = accessor;
         }
-        return value;
+        return accessor;
+    }
+    
+    /**
+     * True unless the column member cannot be set, e.g. a record component or a
+     * getter without setter; read-only dictionary columns are encoded but keep
+     * their own instances.
+     */
+    private boolean isWritable(int columnIndex) {
+        ColumnAccessor accessor = accessor(columnIndex);
+        return accessor == null || accessor.isWritable();
     }
     
     /**
-     * Use reflection to set the field for the specified object. This is the
-     * default mechanism for updating column values and is not recommended since
-     * reflection could potentially have huge overhead for the underlying type.
+     * Update the field, or the property through a setter method, for the specified
+     * object through the accessor compiled when the column is first read. This is the
+     * default mechanism for updating column values.
      * 
      * @param columnIndex
      * @param obj
      * @param value
+     * @throws IllegalStateException if the column is read-only, e.g. a record component.
      * @see #columnSet(int, Function)
      */
     protected void setFieldValue(int columnIndex, Object obj, Object value) {
-        Field f = fields[columnIndex];
-        if(f != null) {
-            f.setAccessible(true);
-            try {
-                f.set(obj, value);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                throw new IllegalArgumentException("Cannot update value at columnIndex: " + columnIndex + " - " + e.getMessage(), e);
-            } finally {
-                f.setAccessible(false);
-            }
+        ColumnAccessor accessor = accessor(columnIndex);
+        if(accessor != null) {
+            accessor.set(obj, value);
         }
     }
 
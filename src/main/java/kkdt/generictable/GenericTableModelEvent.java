@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.TableModel;
+
+/**
+ * Table model event that also carries the affected entries, e.g. the removed
+ * entries of a {@linkplain TableModelEvent#DELETE} which can no longer be obtained
+ * from the model once the event is fired.
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ */
+public class GenericTableModelEvent<T> extends TableModelEvent {
+    private static final long serialVersionUID = 3194616208539311932L;
+
+    private final transient List<T> entries;
+
+    /**
+     * Event for the rows firstRow through lastRow (inclusive) and all columns.
+     *
+     * @param source the model, e.g. a {@linkplain GenericTableModel} or a view of one.
+     * @param firstRow
+     * @param lastRow
+     * @param type {@linkplain TableModelEvent#INSERT}, {@linkplain TableModelEvent#UPDATE} or {@linkplain TableModelEvent#DELETE}.
+     * @param entries the affected entries in row order.
+     */
+    public GenericTableModelEvent(TableModel source, int firstRow, int lastRow, int type, List<T> entries) {
+        super(source, firstRow, lastRow, ALL_COLUMNS, type);
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * The affected entries in row order.
+     *
+     * @return
+     */
+    public List<T> getEntries() {
+        return entries;
+    }
+}
@@ -0,0 +1,406 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <p>
+ * Live, read-only join of two {@linkplain GenericTableModel}s. Every row of the left
+ * model is a row of this model (same row index) followed by the columns of the most
+ * recently added right entry with the same key, if any, e.g. orders joined with
+ * their latest fill:
+ * </p>
+ * <pre>
+ * JoinedTableModel&lt;Order, Fill, String&gt; joined = new JoinedTableModel&lt;&gt;(orders, Order::getId, fills, Fill::getOrderId);
+ * </pre>
+ *
+ * <p>
+ * Both sides are indexed by key. Changes on either side are turned into the
+ * smallest row events on this model: left rows map one to one, right changes only
+ * update the left rows with the affected key. Left inserts and deletes shift the
+ * indexed rows on the shorter side of the change only, so evicting rows from the
+ * front or appending at the end costs nothing for the other rows. Right deletes
+ * are incremental when the right
+ * model fires {@linkplain GenericTableModelEvent}s (as {@linkplain GenericTableModel}
+ * does); otherwise the right index is rebuilt.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <L> The left UI model.
+ * @param <R> The right UI model.
+ * @param <K> The join key.
+ */
+public class JoinedTableModel<L, R, K> extends AbstractTableModel {
+    private static final long serialVersionUID = -3427101384452883722L;
+
+    private final GenericTableModel<L> left;
+    private final GenericTableModel<R> right;
+    private final Function<L, K> leftKey;
+    private final Function<R, K> rightKey;
+    private final transient TableModelListener leftListener = this::leftChanged;
+    private final transient TableModelListener rightListener = this::rightChanged;
+
+    /**
+     * Key per left row.
+     */
+    private final List<K> leftKeys = new ArrayList<>();
+    /**
+     * Left rows per key, ascending, each offset by {@code base}.
+     */
+    private final Map<K, List<Integer>> leftRows = new HashMap<>();
+    /**
+     * Offset of the indexed left rows, moved instead of the rows before a change.
+     */
+    private int base;
+    /**
+     * Right entries per key in order of arrival.
+     */
+    private final Map<K, List<R>> rightEntries = new HashMap<>();
+    private final Map<R, K> rightKeys = new IdentityHashMap<>();
+
+    /**
+     * Join the models and start listening to both.
+     *
+     * @param left
+     * @param leftKey
+     * @param right
+     * @param rightKey
+     */
+    public JoinedTableModel(GenericTableModel<L> left, Function<L, K> leftKey, GenericTableModel<R> right, Function<R, K> rightKey) {
+        Objects.requireNonNull(left, "Required non-null left GenericTableModel");
+        Objects.requireNonNull(leftKey, "Required non-null left key");
+        Objects.requireNonNull(right, "Required non-null right GenericTableModel");
+        Objects.requireNonNull(rightKey, "Required non-null right key");
+        this.left = left;
+        this.right = right;
+        this.leftKey = leftKey;
+        this.rightKey = rightKey;
+        rebuildLeft();
+        rebuildRight();
+        left.addTableModelListener(leftListener);
+        right.addTableModelListener(rightListener);
+    }
+
+    /**
+     * Stop listening to both models.
+     */
+    public void release() {
+        left.removeTableModelListener(leftListener);
+        right.removeTableModelListener(rightListener);
+    }
+
+    @Override
+    public int getRowCount() {
+        return leftKeys.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return left.getColumnCount() + right.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        int leftColumns = left.getColumnCount();
+        return columnIndex < leftColumns ? left.getColumnName(columnIndex) : right.getColumnName(columnIndex - leftColumns);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        int leftColumns = left.getColumnCount();
+        return columnIndex < leftColumns ? left.getColumnClass(columnIndex) : right.getColumnClass(columnIndex - leftColumns);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int leftColumns = left.getColumnCount();
+        if(columnIndex < leftColumns) {
+            return left.getValueAt(rowIndex, columnIndex);
+        }
+        R entry = getRightEntry(rowIndex);
+        return entry == null ? null : right.getColumnValue(entry, columnIndex - leftColumns);
+    }
+
+    /**
+     * The left entry at the specified row.
+     *
+     * @param rowIndex
+     * @return
+     */
+    public L getLeftEntry(int rowIndex) {
+        return left.getEntry(rowIndex);
+    }
+
+    /**
+     * The latest right entry joined to the specified row.
+     *
+     * @param rowIndex
+     * @return the entry; or null if there is no right entry with the key.
+     */
+    public R getRightEntry(int rowIndex) {
+        List<R> entries = rightEntries.get(leftKeys.get(rowIndex));
+        return entries == null || entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    }
+
+    private void leftChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            rebuildLeft();
+            fireTableDataChanged();
+            return;
+        }
+        switch(e.getType()) {
+        case TableModelEvent.INSERT:
+            int inserted = last - first + 1;
+            List<K> keys = new ArrayList<>(inserted);
+            for(int row = first; row <= last; row++) {
+                keys.add(leftKey.apply(left.getEntry(row)));
+            }
+            if(first < leftKeys.size() - first) {
+                shift(0, first, -inserted);
+                base -= inserted;
+            } else {
+                shift(first, leftKeys.size(), inserted);
+            }
+            leftKeys.addAll(first, keys);
+            for(int row = first; row <= last; row++) {
+                index(leftKeys.get(row), row);
+            }
+            rebase();
+            fireTableRowsInserted(first, last);
+            break;
+        case TableModelEvent.DELETE:
+            int deleted = last - first + 1;
+            for(int row = last; row >= first; row--) {
+                unindex(leftKeys.get(row), row);
+            }
+            if(first < leftKeys.size() - 1 - last) {
+                shift(0, first, deleted);
+                base += deleted;
+            } else {
+                shift(last + 1, leftKeys.size(), -deleted);
+            }
+            leftKeys.subList(first, last + 1).clear();
+            rebase();
+            fireTableRowsDeleted(first, last);
+            break;
+        default:
+            boolean keyChanged = false;
+            for(int row = first; row <= last; row++) {
+                K key = leftKey.apply(left.getEntry(row));
+                K previous = leftKeys.set(row, key);
+                if(!Objects.equals(previous, key)) {
+                    keyChanged = true;
+                    unindex(previous, row);
+                    index(key, row);
+                }
+            }
+            // a new key brings another right entry along
+            fireTableChanged(new TableModelEvent(this, first, last, keyChanged ? TableModelEvent.ALL_COLUMNS : e.getColumn()));
+            break;
+        }
+    }
+
+    private void rightChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            rebuildRight();
+            fireRightColumnsUpdated();
+            return;
+        }
+        Set<K> touched = new LinkedHashSet<>();
+        switch(e.getType()) {
+        case TableModelEvent.INSERT:
+            for(int row = first; row <= last; row++) {
+                R entry = right.getEntry(row);
+                K key = rightKey.apply(entry);
+                add(entry, key);
+                touched.add(key);
+            }
+            break;
+        case TableModelEvent.DELETE:
+            if(!(e instanceof GenericTableModelEvent)) {
+                rebuildRight();
+                fireRightColumnsUpdated();
+                return;
+            }
+            for(Object removed : ((GenericTableModelEvent<?>)e).getEntries()) {
+                K key = rightKeys.get(removed);
+                if(remove(removed, key)) {
+                    touched.add(key);
+                }
+            }
+            break;
+        default:
+            for(int row = first; row <= last; row++) {
+                R entry = right.getEntry(row);
+                K key = rightKey.apply(entry);
+                K previous = rightKeys.get(entry);
+                if(!Objects.equals(previous, key)) {
+                    if(remove(entry, previous)) {
+                        touched.add(previous);
+                    }
+                    add(entry, key);
+                    touched.add(key);
+                } else if(isLatest(entry, key)) {
+                    touched.add(key);
+                }
+            }
+            break;
+        }
+        touched.forEach(this::fireKeyUpdated);
+    }
+
+    private void add(R entry, K key) {
+        rightEntries.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        rightKeys.put(entry, key);
+    }
+
+    /**
+     * Remove the right entry from the index.
+     *
+     * @return true if the entry was the latest of its key.
+     */
+    private boolean remove(Object entry, K key) {
+        rightKeys.remove(entry);
+        List<R> entries = rightEntries.get(key);
+        if(entries != null) {
+            for(int i = entries.size() - 1; i >= 0; i--) {
+                if(entries.get(i) == entry) {
+                    entries.remove(i);
+                    if(entries.isEmpty()) {
+                        rightEntries.remove(key);
+                    }
+                    return i == entries.size();
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isLatest(R entry, K key) {
+        List<R> entries = rightEntries.get(key);
+        return entries != null && entries.get(entries.size() - 1) == entry;
+    }
+
+    private void index(K key, int row) {
+        List<Integer> rows = leftRows.computeIfAbsent(key, k -> new ArrayList<>());
+        int at = Collections.binarySearch(rows, row + base);
+        rows.add(at < 0 ? -at - 1 : at, row + base);
+    }
+
+    private void unindex(K key, int row) {
+        List<Integer> rows = leftRows.get(key);
+        if(rows != null) {
+            int at = Collections.binarySearch(rows, row + base);
+            if(at >= 0) {
+                rows.remove(at);
+            }
+            if(rows.isEmpty()) {
+                leftRows.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Move the indexed left rows from {@code from} to {@code to} (exclusive) by
+     * {@code delta}, in the direction of the move so the rows of each key stay
+     * ascending.
+     */
+    private void shift(int from, int to, int delta) {
+        if(delta > 0) {
+            for(int row = to - 1; row >= from; row--) {
+                move(row, delta);
+            }
+        } else {
+            for(int row = from; row < to; row++) {
+                move(row, delta);
+            }
+        }
+    }
+
+    private void move(int row, int delta) {
+        List<Integer> rows = leftRows.get(leftKeys.get(row));
+        int at = Collections.binarySearch(rows, row + base);
+        rows.set(at, row + base + delta);
+    }
+
+    /**
+     * Index the left rows again before the offset overflows.
+     */
+    private void rebase() {
+        if(base > Integer.MAX_VALUE / 4 || base < Integer.MIN_VALUE / 4) {
+            leftRows.clear();
+            base = 0;
+            for(int row = 0; row < leftKeys.size(); row++) {
+                leftRows.computeIfAbsent(leftKeys.get(row), k -> new ArrayList<>()).add(row);
+            }
+        }
+    }
+
+    /**
+     * Fire row updates for the left rows with the specified key.
+     */
+    private void fireKeyUpdated(K key) {
+        List<Integer> rows = leftRows.get(key);
+        if(rows == null) {
+            return;
+        }
+        int i = 0;
+        while(i < rows.size()) {
+            // consecutive rows as one event
+            int from = rows.get(i) - base;
+            int to = from;
+            while(++i < rows.size() && rows.get(i) - base == to + 1) {
+                to++;
+            }
+            fireTableRowsUpdated(from, to);
+        }
+    }
+
+    private void fireRightColumnsUpdated() {
+        if(!leftKeys.isEmpty()) {
+            fireTableRowsUpdated(0, leftKeys.size() - 1);
+        }
+    }
+
+    private void rebuildLeft() {
+        leftKeys.clear();
+        leftRows.clear();
+        for(int row = 0; row < left.getRowCount(); row++) {
+            K key = leftKey.apply(left.getEntry(row));
+            leftKeys.add(key);
+            leftRows.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        }
+        base = 0;
+    }
+
+    private void rebuildRight() {
+        rightEntries.clear();
+        rightKeys.clear();
+        for(int row = 0; row < right.getRowCount(); row++) {
+            R entry = right.getEntry(row);
+            add(entry, rightKey.apply(entry));
+        }
+    }
+}
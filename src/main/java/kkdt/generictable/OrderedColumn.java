@@ -11,9 +11,11 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 /**
- * Column meta data.
+ * Column meta data. Placed on a field, a record component or a getter method
+ * without parameters; a getter column is editable through a matching
+ * {@code set<Name>} method, if any.
  */
-@Target(ElementType.FIELD)
+@Target({ ElementType.FIELD, ElementType.METHOD, ElementType.RECORD_COMPONENT })
 @Retention(RetentionPolicy.RUNTIME)
 public @interface OrderedColumn {
     /**
@@ -60,9 +62,42 @@ public @interface OrderedColumn {
     String displayName() default "";
     
     /**
-     * Editable column value.
+     * Editable column value. The model cannot be created if the column cannot be
+     * set, e.g. a record component or a getter without setter, unless its
+     * {@linkplain #path()} leads to a writable field.
      * 
      * @return
      */
     boolean editable() default false;
+    
+    /**
+     * Dictionary-encode the column values (default false). Meant for columns with
+     * few distinct values: the model keeps one canonical instance per distinct value
+     * and an int code per row. The canonical instance is written back to the entry
+     * unless the column is read-only, e.g. a record component.
+     * 
+     * @return
+     * @see ColumnDictionary
+     */
+    boolean dictionary() default false;
+    
+    /**
+     * Property path, relative to the annotated field or getter, of the column value
+     * (default empty string, the value itself). Dot-separated field names, e.g. {@code "symbol"}
+     * on an {@code instrument} field or {@code "issuer.name"}. The path is resolved
+     * once when the model is created; a null along the path reads as null.
+     * 
+     * @return
+     */
+    String path() default "";
+    
+    /**
+     * Start with the column hidden (default false). A hidden column is not shown
+     * by the {@linkplain GenericTableController} until made visible and is not read
+     * by snapshots and exports.
+     * 
+     * @return
+     * @see GenericTableController#setColumnVisible(int, boolean)
+     */
+    boolean hidden() default false;
 }
@@ -0,0 +1,264 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.RowSorter;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * <p>
+ * Selected entries of a table by identity, or by a key, with their model rows.
+ * The rows are shifted on inserts and deletes instead of being looked up again,
+ * so the selection is read, and re-applied to the table as soon as the table and
+ * its row sorter have processed a model change, in time proportional to the number
+ * of selected entries. Selection changes made by the user at any time, including
+ * right after a change, are recorded. Only a change of
+ * all rows (e.g. {@linkplain GenericTableModel#setEntries(java.util.Collection)})
+ * scans the model.
+ * </p>
+ *
+ * <p>
+ * Selected entries filtered out of the table stay selected and are selected again
+ * when shown; the user deselects them once shown. Must be used on the EDT.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableController#trackSelection()
+ */
+final class SelectionTracker<T> {
+    private final JTable table;
+    private final GenericTableModel<T> model;
+    private final Function<T, ?> key;
+    /**
+     * Selected model row per entry key.
+     */
+    private final Map<Object, Selected<T>> selected;
+
+    private final TableModelListener modelListener = this::modelChanged;
+    private final TableModelListener dispatchedListener = this::modelDispatched;
+    private final RowSorterListener sorterListener = this::sorterChanged;
+    private final ListSelectionListener selectionListener = this::selectionChanged;
+    private final PropertyChangeListener sorterProperty = e -> sorterReplaced((RowSorter<?>)e.getOldValue(), (RowSorter<?>)e.getNewValue());
+    /**
+     * True while the table processes a model change; its selection changes in
+     * between are not the user's.
+     */
+    private boolean dispatching;
+    /**
+     * True if the selection must be re-applied once the model change is processed.
+     */
+    private boolean changed;
+    private boolean restoring;
+    private boolean scheduled;
+
+    /**
+     * @param table
+     * @param model
+     * @param key the entry key; or null to track entries by identity.
+     */
+    SelectionTracker(JTable table, GenericTableModel<T> model, Function<T, ?> key) {
+        this.table = table;
+        this.model = model;
+        this.key = key;
+        this.selected = key == null ? new IdentityHashMap<>() : new LinkedHashMap<>();
+        selectionChanged(null);
+        model.addTableModelListener(modelListener);
+        model.addDispatchedListener(dispatchedListener);
+        table.getSelectionModel().addListSelectionListener(selectionListener);
+        table.addPropertyChangeListener("rowSorter", sorterProperty);
+        sorterReplaced(null, table.getRowSorter());
+    }
+
+    /**
+     * Stop tracking the selection.
+     */
+    void release() {
+        model.removeTableModelListener(modelListener);
+        model.removeDispatchedListener(dispatchedListener);
+        table.getSelectionModel().removeListSelectionListener(selectionListener);
+        table.removePropertyChangeListener("rowSorter", sorterProperty);
+        sorterReplaced(table.getRowSorter(), null);
+    }
+
+    /**
+     * The selected entries.
+     *
+     * @return
+     */
+    List<T> getSelectedEntries() {
+        List<T> entries = new ArrayList<>(selected.size());
+        selected.values().forEach(s -> entries.add(s.entry));
+        return entries;
+    }
+
+    private Object keyOf(T entry) {
+        return key == null ? entry : key.apply(entry);
+    }
+
+    private void sorterReplaced(RowSorter<?> previous, RowSorter<?> next) {
+        if(previous != null) {
+            previous.removeRowSorterListener(sorterListener);
+        }
+        if(next != null) {
+            next.addRowSorterListener(sorterListener);
+        }
+    }
+
+    private int toView(int row) {
+        return row < model.getRowCount() ? table.convertRowIndexToView(row) : -1;
+    }
+
+    private void selectionChanged(ListSelectionEvent e) {
+        // the table restores its selection after a sort as one adjusting change
+        if(restoring || dispatching || (e != null && e.getValueIsAdjusting())) {
+            return;
+        }
+        // the table selection, and the entries the table cannot show
+        Map<Object, Selected<T>> next = key == null ? new IdentityHashMap<>() : new LinkedHashMap<>();
+        for(int view : table.getSelectedRows()) {
+            int row = table.convertRowIndexToModel(view);
+            T entry = model.getEntry(row);
+            next.put(keyOf(entry), new Selected<>(entry, row));
+        }
+        for(Map.Entry<Object, Selected<T>> s : selected.entrySet()) {
+            Selected<T> previous = s.getValue();
+            if(!next.containsKey(s.getKey()) && (previous.hidden || toView(previous.row) < 0)) {
+                previous.hidden = true;
+                next.put(s.getKey(), previous);
+            }
+        }
+        selected.clear();
+        selected.putAll(next);
+    }
+
+    private void sorterChanged(RowSorterEvent e) {
+        if(e.getType() == RowSorterEvent.Type.SORTED && !dispatching && !scheduled
+            && selected.values().stream().anyMatch(s -> s.hidden))
+        {
+            // entries filtered out may be shown again once the table has processed the sort
+            scheduled = true;
+            SwingUtilities.invokeLater(() -> {
+                scheduled = false;
+                restore();
+            });
+        }
+    }
+
+    private void modelChanged(TableModelEvent e) {
+        dispatching = true;
+        if(selected.isEmpty()) {
+            return;
+        }
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            relocate();
+            changed = true;
+        } else if(e.getType() == TableModelEvent.INSERT) {
+            int count = last - first + 1;
+            for(Selected<T> s : selected.values()) {
+                if(s.row >= first) {
+                    s.row += count;
+                }
+            }
+            changed = true;
+        } else if(e.getType() == TableModelEvent.DELETE) {
+            int count = last - first + 1;
+            for(Iterator<Selected<T>> i = selected.values().iterator(); i.hasNext();) {
+                Selected<T> s = i.next();
+                if(s.row > last) {
+                    s.row -= count;
+                } else if(s.row >= first) {
+                    i.remove();
+                }
+            }
+            changed = true;
+        } else {
+            changed |= selected.values().stream().anyMatch(s -> s.hidden);
+        }
+    }
+
+    /**
+     * The table and its sorter have processed the model change; re-apply the
+     * selection before anything else can change it.
+     */
+    private void modelDispatched(TableModelEvent e) {
+        dispatching = false;
+        if(changed) {
+            changed = false;
+            restore();
+        }
+    }
+
+    /**
+     * Find the rows of the selected entries after all rows changed.
+     */
+    private void relocate() {
+        Map<Object, Selected<T>> found = key == null ? new IdentityHashMap<>() : new HashMap<>();
+        for(int row = 0; row < model.getRowCount() && found.size() < selected.size(); row++) {
+            T entry = model.getEntry(row);
+            Object k = keyOf(entry);
+            if(selected.containsKey(k)) {
+                found.put(k, new Selected<>(entry, row));
+            }
+        }
+        selected.keySet().retainAll(found.keySet());
+        selected.replaceAll((k, s) -> found.get(k));
+    }
+
+    private void restore() {
+        ListSelectionModel selection = table.getSelectionModel();
+        restoring = true;
+        try {
+            selection.setValueIsAdjusting(true);
+            selection.clearSelection();
+            for(Selected<T> s : selected.values()) {
+                int view = toView(s.row);
+                s.hidden = view < 0;
+                if(view >= 0) {
+                    selection.addSelectionInterval(view, view);
+                }
+            }
+            selection.setValueIsAdjusting(false);
+        } finally {
+            restoring = false;
+        }
+    }
+
+    private static final class Selected<T> {
+        private final T entry;
+        private int row;
+        /**
+         * Not shown by the table, e.g. filtered out, when last seen.
+         */
+        private boolean hidden;
+
+        Selected(T entry, int row) {
+            this.entry = entry;
+            this.row = row;
+        }
+    }
+}
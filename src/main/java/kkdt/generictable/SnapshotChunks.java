@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.Arrays;
+
+import javax.swing.event.TableModelEvent;
+
+import kkdt.generictable.TableSnapshot.Chunk;
+
+/**
+ * <p>
+ * The current rows and column values of a model in chunks, kept up to date by the
+ * table events and handed to every {@linkplain TableSnapshot} as they are. Each
+ * event copies or rewrites only the chunks it touches: a chunk held by a snapshot is
+ * copied before it is written, any other chunk is written in place. Taking a
+ * snapshot only starts a new generation, so chunks of earlier generations are never
+ * written again.
+ * </p>
+ *
+ * <p>
+ * Inserts fill the chunk they land in and split it when full; deletes shrink or drop
+ * chunks. Rows are found by binary search on the first row of each chunk. Used on
+ * the EDT only.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#snapshot()
+ */
+final class SnapshotChunks<T> {
+    private final GenericTableModel<T> model;
+    private final boolean[] columns;
+    private Chunk[] chunks;
+    /**
+     * First row of each chunk.
+     */
+    private int[] starts;
+    private int chunkCount;
+    private int size;
+    /**
+     * Chunks of older generations are held by snapshots.
+     */
+    private int generation;
+    /**
+     * True if the chunk arrays are held by a snapshot.
+     */
+    private boolean shared;
+
+    /**
+     * Capture the shown columns of all rows.
+     *
+     * @param model
+     */
+    SnapshotChunks(GenericTableModel<T> model) {
+        this.model = model;
+        this.columns = TableSnapshot.shownColumns(model);
+        rebuild();
+    }
+
+    /**
+     * A snapshot of the current chunks.
+     *
+     * @param version
+     * @return
+     */
+    TableSnapshot<T> snapshot(long version) {
+        generation++;
+        shared = true;
+        return new TableSnapshot<>(version, size, model.columnNames, chunks, starts, chunkCount);
+    }
+
+    /**
+     * Bring the chunks in line with the event; the model has already changed.
+     *
+     * @param e
+     */
+    void changed(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE) {
+            rebuild();
+        } else if(e.getType() == TableModelEvent.INSERT) {
+            insert(first, last - first + 1);
+        } else if(e.getType() == TableModelEvent.DELETE) {
+            delete(first, Math.min(last, size - 1) - first + 1);
+        } else {
+            update(first, Math.min(last, size - 1), e.getColumn());
+        }
+    }
+
+    private void rebuild() {
+        chunks = new Chunk[0];
+        starts = new int[0];
+        chunkCount = 0;
+        size = 0;
+        shared = false;
+        splice(0, 0, 0, model.getRowCount());
+    }
+
+    private void update(int first, int last, int column) {
+        if(column != TableModelEvent.ALL_COLUMNS && (column >= columns.length || !columns[column])) {
+            return;
+        }
+        for(int row = first; row <= last;) {
+            int k = TableSnapshot.chunkOf(starts, chunkCount, row);
+            Chunk chunk = writable(k);
+            int length = Math.min(last + 1, starts[k] + chunk.size) - row;
+            chunk.capture(model, row - starts[k], row, length, column);
+            row += length;
+        }
+    }
+
+    private void insert(int first, int count) {
+        if(first > size) {
+            // not in line with the model; start over
+            rebuild();
+        } else if(first == size) {
+            // append: fill the last chunk, then start new ones
+            int room = chunkCount == 0 ? 0 : TableSnapshot.CHUNK_SIZE - chunks[chunkCount - 1].size;
+            int filled = Math.min(room, count);
+            if(filled > 0) {
+                Chunk chunk = writable(chunkCount - 1);
+                chunk.insert(chunk.size, filled);
+                chunk.capture(model, chunk.size - filled, first, filled, TableModelEvent.ALL_COLUMNS);
+                size += filled;
+            }
+            if(count > filled) {
+                splice(chunkCount, 0, first + filled, count - filled);
+            }
+        } else {
+            int k = TableSnapshot.chunkOf(starts, chunkCount, first);
+            Chunk chunk = chunks[k];
+            if(chunk.size + count <= TableSnapshot.CHUNK_SIZE) {
+                chunk = writable(k);
+                chunk.insert(first - starts[k], count);
+                chunk.capture(model, first - starts[k], first, count, TableModelEvent.ALL_COLUMNS);
+                size += count;
+                restart(k + 1);
+            } else {
+                // the chunk no longer fits: recapture it with the new rows
+                size -= chunk.size;
+                splice(k, 1, starts[k], chunk.size + count);
+            }
+        }
+    }
+
+    private void delete(int first, int count) {
+        if(count <= 0) {
+            return;
+        }
+        int end = first + count;
+        int k = TableSnapshot.chunkOf(starts, chunkCount, first);
+        int from = k;
+        int dropFrom = -1;
+        int dropCount = 0;
+        for(; k < chunkCount && starts[k] < end; k++) {
+            int at = Math.max(first, starts[k]) - starts[k];
+            int length = Math.min(end, starts[k] + chunks[k].size) - starts[k] - at;
+            if(length == chunks[k].size) {
+                // whole chunks dropped are consecutive
+                dropFrom = dropFrom < 0 ? k : dropFrom;
+                dropCount++;
+            } else {
+                writable(k).delete(at, length);
+            }
+        }
+        size -= count;
+        if(dropCount > 0) {
+            remove(dropFrom, dropCount);
+        }
+        restart(from);
+    }
+
+    /**
+     * Replace {@code remove} chunks at {@code index} with chunks capturing
+     * {@code count} model rows from {@code from}.
+     */
+    private void splice(int index, int remove, int from, int count) {
+        int added = (count + TableSnapshot.CHUNK_SIZE - 1) / TableSnapshot.CHUNK_SIZE;
+        Chunk[] next = new Chunk[Math.max(chunkCount - remove + added, 1)];
+        System.arraycopy(chunks, 0, next, 0, index);
+        System.arraycopy(chunks, index + remove, next, index + added, chunkCount - index - remove);
+        for(int i = 0; i < added; i++) {
+            int length = Math.min(TableSnapshot.CHUNK_SIZE, count - i * TableSnapshot.CHUNK_SIZE);
+            next[index + i] = Chunk.capture(model, columns, from + i * TableSnapshot.CHUNK_SIZE, length, generation);
+        }
+        int[] nextStarts = new int[next.length];
+        System.arraycopy(starts, 0, nextStarts, 0, index);
+        chunks = next;
+        starts = nextStarts;
+        chunkCount = chunkCount - remove + added;
+        shared = false;
+        size += count;
+        restart(index);
+    }
+
+    private void remove(int index, int count) {
+        Chunk[] next = new Chunk[chunks.length];
+        System.arraycopy(chunks, 0, next, 0, index);
+        System.arraycopy(chunks, index + count, next, index, chunkCount - index - count);
+        chunks = next;
+        starts = starts.clone();
+        shared = false;
+        chunkCount -= count;
+    }
+
+    /**
+     * Recompute the first rows of the chunks from {@code index}.
+     */
+    private void restart(int index) {
+        unshare();
+        for(int k = Math.max(index, 0); k < chunkCount; k++) {
+            starts[k] = k == 0 ? 0 : starts[k - 1] + chunks[k - 1].size;
+        }
+    }
+
+    /**
+     * The chunk at the index, copied first if a snapshot holds it.
+     */
+    private Chunk writable(int index) {
+        unshare();
+        Chunk chunk = chunks[index];
+        if(chunk.owner != generation) {
+            chunk = chunk.copy(generation);
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private void unshare() {
+        if(shared) {
+            chunks = Arrays.copyOf(chunks, chunks.length);
+            starts = starts.clone();
+            shared = false;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>
+ * Sort keys of one column, extracted once per row and kept between sorts. Keys are
+ * stored by the column type: integral, character and boolean columns as
+ * {@code long[]}, floating point columns as {@code double[]}, dictionary-encoded
+ * columns as their {@code int[]} codes and everything else as objects; strings and
+ * values that are not {@linkplain Comparable} become {@linkplain java.text.CollationKey}s
+ * so the collator runs once per row instead of once per comparison.
+ * </p>
+ *
+ * <p>
+ * The model events keep the rows in line; only inserted or updated rows are
+ * extracted again.
+ * </p>
+ *
+ * @author thinh ho
+ * @see GenericRowSorter
+ */
+final class SortKeyColumn {
+    private static final int LONG = 0;
+    private static final int DOUBLE = 1;
+    private static final int CODE = 2;
+    private static final int OBJECT = 3;
+
+    private final int columnIndex;
+    private final ColumnDictionary dictionary;
+    private final Comparator<Object> comparator;
+    private final Collator collator;
+    private int kind;
+    /**
+     * long[], double[], int[] or Object[] by kind.
+     */
+    private Object keys;
+    private boolean[] nulls;
+    private boolean[] stale;
+    private int staleCount;
+    /**
+     * No stale row before this one.
+     */
+    private int firstStale;
+    private int rowCount;
+
+    @SuppressWarnings("unchecked")
+    SortKeyColumn(GenericTableModel<?> model, int columnIndex, Comparator<?> comparator) {
+        this.columnIndex = columnIndex;
+        this.dictionary = comparator == null ? model.getDictionary(columnIndex) : null;
+        this.comparator = (Comparator<Object>)comparator;
+        this.collator = Collator.getInstance();
+        Class<?> type = ColumnTypes.boxed(model.getColumnClass(columnIndex));
+        if(dictionary != null) {
+            kind = CODE;
+        } else if(comparator != null) {
+            kind = OBJECT;
+        } else if(type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+            || type == Character.class || type == Boolean.class)
+        {
+            kind = LONG;
+        } else if(type == Double.class || type == Float.class) {
+            kind = DOUBLE;
+        } else {
+            kind = OBJECT;
+        }
+        reset(model.getRowCount());
+    }
+
+    /**
+     * Extract the keys of the rows changed since the last call.
+     *
+     * @param model
+     */
+    void refresh(GenericTableModel<?> model) {
+        for(int row = firstStale; staleCount > 0 && row < rowCount; row++) {
+            if(stale[row]) {
+                if(!extract(model, row)) {
+                    // unexpected value type; compare as objects from now on
+                    kind = OBJECT;
+                    reset(rowCount);
+                    row = -1;
+                    continue;
+                }
+                stale[row] = false;
+                staleCount--;
+            }
+        }
+        firstStale = rowCount;
+    }
+
+    /**
+     * Compare the keys of two model rows; nulls first.
+     *
+     * @param row1
+     * @param row2
+     * @return
+     */
+    int compare(int row1, int row2) {
+        if(nulls[row1] || nulls[row2]) {
+            return nulls[row1] == nulls[row2] ? 0 : nulls[row1] ? -1 : 1;
+        }
+        switch(kind) {
+        case LONG:
+            return Long.compare(((long[])keys)[row1], ((long[])keys)[row2]);
+        case DOUBLE:
+            return Double.compare(((double[])keys)[row1], ((double[])keys)[row2]);
+        case CODE:
+            return dictionary.compare(((int[])keys)[row1], ((int[])keys)[row2]);
+        default:
+            Object[] objects = (Object[])keys;
+            return comparator != null ? comparator.compare(objects[row1], objects[row2]) : compareObjects(objects[row1], objects[row2]);
+        }
+    }
+
+    void invalidate(int first, int last) {
+        firstStale = Math.min(firstStale, first);
+        for(int row = first; row <= last && row < rowCount; row++) {
+            if(!stale[row]) {
+                stale[row] = true;
+                staleCount++;
+            }
+        }
+    }
+
+    /**
+     * Open a gap of {@code count} rows at {@code first}, to be extracted.
+     */
+    void insertRows(int first, int count) {
+        if(rowCount + count > stale.length) {
+            int capacity = Math.max(rowCount + count, stale.length * 2);
+            Object grown = newKeys(capacity);
+            System.arraycopy(keys, 0, grown, 0, rowCount);
+            keys = grown;
+            nulls = Arrays.copyOf(nulls, capacity);
+            stale = Arrays.copyOf(stale, capacity);
+        }
+        System.arraycopy(keys, first, keys, first + count, rowCount - first);
+        System.arraycopy(nulls, first, nulls, first + count, rowCount - first);
+        System.arraycopy(stale, first, stale, first + count, rowCount - first);
+        rowCount += count;
+        if(firstStale >= first) {
+            firstStale += count;
+        }
+        Arrays.fill(stale, first, first + count, false);
+        invalidate(first, first + count - 1);
+    }
+
+    /**
+     * Close the gap of {@code count} rows at {@code first}.
+     */
+    void deleteRows(int first, int count) {
+        for(int row = first; row < first + count; row++) {
+            if(stale[row]) {
+                staleCount--;
+            }
+        }
+        System.arraycopy(keys, first + count, keys, first, rowCount - first - count);
+        System.arraycopy(nulls, first + count, nulls, first, rowCount - first - count);
+        System.arraycopy(stale, first + count, stale, first, rowCount - first - count);
+        rowCount -= count;
+        if(firstStale > first) {
+            firstStale = Math.max(first, firstStale - count);
+        }
+        if(kind == OBJECT) {
+            // no stale references to removed values
+            Arrays.fill((Object[])keys, rowCount, rowCount + count, null);
+        }
+    }
+
+    /**
+     * Drop all keys and size the column to the specified rows.
+     */
+    void reset(int rows) {
+        int capacity = Math.max(16, rows);
+        keys = newKeys(capacity);
+        nulls = new boolean[capacity];
+        stale = new boolean[capacity];
+        Arrays.fill(stale, 0, rows, true);
+        staleCount = rows;
+        firstStale = 0;
+        rowCount = rows;
+    }
+
+    private Object newKeys(int capacity) {
+        switch(kind) {
+        case LONG:
+            return new long[capacity];
+        case DOUBLE:
+            return new double[capacity];
+        case CODE:
+            return new int[capacity];
+        default:
+            return new Object[capacity];
+        }
+    }
+
+    /**
+     * @return false if the value does not fit the key type.
+     */
+    private boolean extract(GenericTableModel<?> model, int row) {
+        if(kind == CODE) {
+            ((int[])keys)[row] = dictionary.getRowCode(row);
+            return true;
+        }
+        Object value = model.getValueAt(row, columnIndex);
+        nulls[row] = value == null;
+        if(value == null) {
+            return true;
+        }
+        switch(kind) {
+        case LONG:
+            if(value instanceof Number) {
+                ((long[])keys)[row] = ((Number)value).longValue();
+            } else if(value instanceof Character) {
+                ((long[])keys)[row] = (Character)value;
+            } else if(value instanceof Boolean) {
+                ((long[])keys)[row] = (Boolean)value ? 1 : 0;
+            } else {
+                return false;
+            }
+            return true;
+        case DOUBLE:
+            if(!(value instanceof Number)) {
+                return false;
+            }
+            ((double[])keys)[row] = ((Number)value).doubleValue();
+            return true;
+        default:
+            ((Object[])keys)[row] = comparator != null || (value instanceof Comparable && !(value instanceof String))
+                ? value : collator.getCollationKey(value.toString());
+            return true;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareObjects(Object v1, Object v2) {
+        if(v1.getClass() == v2.getClass()) {
+            return ((Comparable)v1).compareTo(v2);
+        }
+        // mixed types in one column
+        return v1.toString().compareTo(v2.toString());
+    }
+}
@@ -0,0 +1,550 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * <p>
+ * Row storage for a {@linkplain GenericTableModel} that keeps only a bounded number
+ * of rows on the heap. Rows are held in blocks; when more blocks are resident than
+ * the budget allows, the least recently accessed block is written to a temporary
+ * file as the tagged binary values also used by {@linkplain TableArchive} and
+ * dropped; it is read back the next time one of its rows is accessed.
+ * </p>
+ *
+ * <p>
+ * Entries stay the same instances across spills as long as they are referenced
+ * outside of the store, e.g. selected or tracked by a view, so features comparing
+ * entries by identity keep working; such entries are reused as they are when their
+ * block is read back. Only entries nothing else refers to are created again by the
+ * factory from their spilled values. The entry type may only have writable fields
+ * of types with a binary form: primitives and their wrappers, strings, big numbers,
+ * dates, instants and enums; records cannot be spilled.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#spillRows(Supplier, int)
+ */
+public class SpillingRowStore<T> extends AbstractList<T> implements Closeable {
+    static final int BLOCK_SIZE = 256;
+
+    private final Supplier<T> factory;
+    private final List<Field> fields = new ArrayList<>();
+    private final List<ColumnAccessor> accessors = new ArrayList<>();
+    private final int residentBlocks;
+    private final Path path;
+    private final FileChannel file;
+    private final Scratch scratch = new Scratch();
+    private final ByteChannelWriter writer = new ByteChannelWriter(scratch);
+    private final ByteChannelReader reader = new ByteChannelReader(scratch);
+    private final CRC32 crc = new CRC32();
+    /**
+     * Spilled entries collected since.
+     */
+    private final ReferenceQueue<T> collected = new ReferenceQueue<>();
+
+    private final List<Block<T>> blocks = new ArrayList<>();
+    /**
+     * Resident blocks, least recently accessed first.
+     */
+    private final LinkedHashMap<Block<T>, Boolean> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private int size;
+    private long fileEnd;
+    /**
+     * First row of each block, binary searched by {@linkplain #find(int)}; valid
+     * for the first {@code indexed} blocks and recomputed from there on demand.
+     */
+    private int[] starts = new int[16];
+    private int indexed;
+    /**
+     * The block found by the previous lookup and its first row; -1 if unknown.
+     */
+    private int lastBlock = -1;
+    private int lastStart;
+
+    private long hits;
+    private long misses;
+    private long spills;
+
+    /**
+     * Create an empty store backed by a new temporary file.
+     *
+     * @param type the entry type.
+     * @param factory creates the entries read back from the file.
+     * @param residentRows the most rows kept on the heap.
+     * @throws IOException if the temporary file cannot be created.
+     * @throws IllegalArgumentException if a field of the entry type has no binary form.
+     */
+    public SpillingRowStore(Class<T> type, Supplier<T> factory, int residentRows) throws IOException {
+        Objects.requireNonNull(type, "Required non-null entry type");
+        Objects.requireNonNull(factory, "Required non-null Supplier");
+        if(residentRows <= 0) {
+            throw new IllegalArgumentException("Resident rows must be positive: " + residentRows);
+        }
+        for(Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for(Field f : c.getDeclaredFields()) {
+                if(Modifier.isStatic(f.getModifiers()) || Modifier.isTransient(f.getModifiers())) {
+                    continue;
+                }
+                if(!ColumnTypes.isSupported(f.getType())) {
+                    throw new IllegalArgumentException("Cannot spill field without binary form: " + f);
+                }
+                ColumnAccessor accessor = ColumnAccessor.of(f, null);
+                if(!accessor.isWritable()) {
+                    throw new IllegalArgumentException("Cannot spill read-only field: " + f);
+                }
+                fields.add(f);
+                accessors.add(accessor);
+            }
+        }
+        this.factory = factory;
+        this.residentBlocks = Math.max(1, (residentRows + BLOCK_SIZE - 1) / BLOCK_SIZE);
+        this.path = Files.createTempFile("generictable", ".rows");
+        this.file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        path.toFile().deleteOnExit();
+    }
+
+    /**
+     * Total row accesses served from the heap.
+     *
+     * @return
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Total row accesses that read a block back from the file.
+     *
+     * @return
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Total blocks written to the file.
+     *
+     * @return
+     */
+    public synchronized long getSpills() {
+        return spills;
+    }
+
+    /**
+     * Rows currently on the heap.
+     *
+     * @return
+     */
+    public synchronized int getResidentRows() {
+        int rows = 0;
+        for(Block<T> block : resident.keySet()) {
+            rows += block.rows.size();
+        }
+        return rows;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized T get(int index) {
+        checkIndex(index, size);
+        int b = find(index);
+        return load(blocks.get(b)).get(index - lastStart);
+    }
+
+    @Override
+    public synchronized T set(int index, T element) {
+        checkIndex(index, size);
+        int b = find(index);
+        return load(blocks.get(b)).set(index - lastStart, element);
+    }
+
+    @Override
+    public synchronized void add(int index, T element) {
+        checkIndex(index, size + 1);
+        if(index == size) {
+            Block<T> last = blocks.isEmpty() ? null : blocks.get(blocks.size() - 1);
+            if(last == null || last.size >= BLOCK_SIZE) {
+                last = new Block<>();
+                last.rows = new ArrayList<>(BLOCK_SIZE);
+                blocks.add(last);
+                resident.put(last, Boolean.TRUE);
+                evict(last);
+            }
+            load(last).add(element);
+            last.size++;
+        } else {
+            int b = find(index);
+            Block<T> block = blocks.get(b);
+            load(block).add(index - lastStart, element);
+            block.size++;
+            resized(b);
+            if(block.size > 2 * BLOCK_SIZE) {
+                split(b);
+            }
+        }
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public synchronized T remove(int index) {
+        checkIndex(index, size);
+        int b = find(index);
+        Block<T> block = blocks.get(b);
+        T removed = load(block).remove(index - lastStart);
+        block.size--;
+        resized(b);
+        if(block.size == 0) {
+            blocks.remove(b);
+            resident.remove(block);
+            lastBlock = -1;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        blocks.clear();
+        resident.clear();
+        size = 0;
+        fileEnd = 0;
+        indexed = 0;
+        lastBlock = -1;
+        modCount++;
+        try {
+            file.truncate(0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot truncate row file " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected synchronized void removeRange(int fromIndex, int toIndex) {
+        // whole blocks are dropped without reading them back
+        int remaining = toIndex - fromIndex;
+        while(remaining > 0) {
+            int b = find(fromIndex);
+            Block<T> block = blocks.get(b);
+            int offset = fromIndex - lastStart;
+            if(offset == 0 && block.size <= remaining) {
+                blocks.remove(b);
+                resident.remove(block);
+                size -= block.size;
+                remaining -= block.size;
+                indexed = Math.min(indexed, b);
+                lastBlock = -1;
+            } else {
+                int count = Math.min(remaining, block.size - offset);
+                load(block).subList(offset, offset + count).clear();
+                block.size -= count;
+                resized(b);
+                size -= count;
+                remaining -= count;
+            }
+        }
+        modCount++;
+    }
+
+    /**
+     * Stop using the file; the store is empty afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        blocks.clear();
+        resident.clear();
+        size = 0;
+        indexed = 0;
+        lastBlock = -1;
+        file.close();
+    }
+
+    /**
+     * Index of the block holding the row; sets {@code lastStart} to its first row.
+     */
+    private int find(int index) {
+        int count = blocks.size();
+        if(indexed < count) {
+            reindex(count);
+        }
+        int b = lastBlock;
+        if(b < 0 || b >= count || index < starts[b] || index >= starts[b] + blocks.get(b).size) {
+            // the last block starting at or before the row
+            int low = 0;
+            int high = count - 1;
+            while(low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if(starts[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            b = low;
+        }
+        lastBlock = b;
+        lastStart = starts[b];
+        return b;
+    }
+
+    private void reindex(int count) {
+        if(starts.length < count) {
+            starts = Arrays.copyOf(starts, Math.max(count, starts.length * 2));
+        }
+        for(int k = indexed; k < count; k++) {
+            starts[k] = k == 0 ? 0 : starts[k - 1] + blocks.get(k - 1).size;
+        }
+        indexed = count;
+    }
+
+    /**
+     * The size of the block changed, so the blocks after it start elsewhere.
+     */
+    private void resized(int b) {
+        indexed = Math.min(indexed, b + 1);
+    }
+
+    private List<T> load(Block<T> block) {
+        if(block.rows != null) {
+            hits++;
+            resident.get(block);
+            return block.rows;
+        }
+        misses++;
+        try {
+            scratch.buffer.clear();
+            if(scratch.buffer.capacity() < block.length) {
+                scratch.buffer = ByteBuffer.allocate(block.length);
+            }
+            scratch.buffer.limit(block.length);
+            while(scratch.buffer.hasRemaining()) {
+                if(file.read(scratch.buffer, block.offset + scratch.buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of row file");
+                }
+            }
+            scratch.buffer.flip();
+            reader.reset();
+            expunge();
+            List<T> rows = new ArrayList<>(Math.max(block.size, BLOCK_SIZE));
+            for(int i = 0; i < block.size; i++) {
+                T entry = block.spilled[i] == null ? null : block.spilled[i].get();
+                if(entry == null) {
+                    entry = factory.get();
+                    for(int f = 0; f < accessors.size(); f++) {
+                        accessors.get(f).set(entry, ColumnTypes.coerce(fields.get(f).getType(), ColumnTypes.read(reader)));
+                    }
+                } else {
+                    // still referenced; the instance is the current state of the row
+                    for(int f = 0; f < accessors.size(); f++) {
+                        ColumnTypes.read(reader);
+                    }
+                }
+                rows.add(entry);
+            }
+            block.rows = rows;
+            block.spilled = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read rows from " + path + ": " + e.getMessage(), e);
+        }
+        resident.put(block, Boolean.TRUE);
+        evict(block);
+        return block.rows;
+    }
+
+    /**
+     * Spill the least recently accessed blocks over the budget, except the block
+     * in use.
+     */
+    private void evict(Block<T> inUse) {
+        Iterator<Block<T>> eldest = resident.keySet().iterator();
+        while(resident.size() > residentBlocks && eldest.hasNext()) {
+            Block<T> block = eldest.next();
+            if(block != inUse) {
+                spill(block);
+                eldest.remove();
+            }
+        }
+    }
+
+    private void spill(Block<T> block) {
+        try {
+            scratch.buffer.clear();
+            for(T entry : block.rows) {
+                for(ColumnAccessor accessor : accessors) {
+                    ColumnTypes.write(writer, accessor.get(entry));
+                }
+            }
+            writer.flush();
+            scratch.buffer.flip();
+            int length = scratch.buffer.remaining();
+            crc.reset();
+            crc.update(scratch.buffer.duplicate());
+            long checksum = crc.getValue();
+            // unchanged rows are already in the file
+            if(block.offset < 0 || length != block.length || checksum != block.checksum) {
+                if(block.offset < 0 || length > block.capacity) {
+                    block.offset = fileEnd;
+                    block.capacity = length;
+                    fileEnd += length;
+                }
+                while(scratch.buffer.hasRemaining()) {
+                    file.write(scratch.buffer, block.offset + scratch.buffer.position());
+                }
+                block.length = length;
+                block.checksum = checksum;
+                spills++;
+            }
+            expunge();
+            @SuppressWarnings("unchecked")
+            Spilled<T>[] spilled = new Spilled[block.rows.size()];
+            for(int i = 0; i < spilled.length; i++) {
+                spilled[i] = new Spilled<>(block.rows.get(i), collected, block, i);
+            }
+            block.spilled = spilled;
+            block.rows = null;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot write rows to " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Split an oversized block in two resident halves.
+     */
+    private void split(int b) {
+        Block<T> block = blocks.get(b);
+        Block<T> next = new Block<>();
+        int half = block.size / 2;
+        List<T> tail = block.rows.subList(half, block.size);
+        next.rows = new ArrayList<>(tail);
+        next.size = next.rows.size();
+        tail.clear();
+        block.size = half;
+        blocks.add(b + 1, next);
+        resized(b);
+        resident.put(next, Boolean.TRUE);
+        lastBlock = -1;
+        evict(next);
+    }
+
+    /**
+     * Drop the references to spilled entries collected since, so only entries
+     * referenced outside of the store cost a reference.
+     */
+    private void expunge() {
+        for(Object ref; (ref = collected.poll()) != null;) {
+            Spilled<?> s = (Spilled<?>)ref;
+            Spilled<?>[] spilled = s.block.spilled;
+            if(spilled != null && spilled[s.index] == s) {
+                spilled[s.index] = null;
+            }
+        }
+    }
+
+    private static void checkIndex(int index, int size) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+    }
+
+    private static final class Block<T> {
+        /**
+         * Rows on the heap; null while spilled.
+         */
+        private List<T> rows;
+        /**
+         * The entries when spilled, while referenced elsewhere; null while resident.
+         */
+        private Spilled<T>[] spilled;
+        private int size;
+        private long offset = -1;
+        private int capacity;
+        private int length;
+        private long checksum;
+    }
+
+    private static final class Spilled<T> extends WeakReference<T> {
+        private final Block<T> block;
+        private final int index;
+
+        Spilled(T entry, ReferenceQueue<? super T> queue, Block<T> block, int index) {
+            super(entry, queue);
+            this.block = block;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Growable heap buffer the writer drains into and the reader fills from.
+     */
+    private static final class Scratch implements ReadableByteChannel, WritableByteChannel {
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            if(buffer.remaining() < n) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            buffer.put(src);
+            return n;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(dst.remaining(), buffer.remaining());
+            ByteBuffer slice = buffer.slice();
+            slice.limit(n);
+            dst.put(slice);
+            buffer.position(buffer.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
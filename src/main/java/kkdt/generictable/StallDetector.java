@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Logs a warning when a model operation holds its thread, usually the EDT, longer
+ * than a threshold, e.g. listeners of a {@linkplain GenericTableModel} taking too
+ * long to process an event:
+ * </p>
+ * <pre>
+ * model.detectStalls(new StallDetector(Duration.ofMillis(50)));
+ * </pre>
+ *
+ * <p>
+ * Warnings are logged to the {@code kkdt.generictable.StallDetector} logger; the
+ * operation is only described when the warning is logged.
+ * </p>
+ *
+ * @author thinh ho
+ * @see GenericTableModel#detectStalls(StallDetector)
+ */
+public class StallDetector {
+    private static final Logger LOGGER = Logger.getLogger(StallDetector.class.getName());
+
+    private final long thresholdNanos;
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong longestNanos = new AtomicLong();
+
+    /**
+     * @param threshold operations taking longer are stalls.
+     */
+    public StallDetector(Duration threshold) {
+        Objects.requireNonNull(threshold, "Required non-null threshold");
+        if(threshold.isNegative() || threshold.isZero()) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        this.thresholdNanos = threshold.toNanos();
+    }
+
+    /**
+     * The start of an operation.
+     *
+     * @return the start time to pass to {@link #end(long, Supplier)}.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * The end of an operation; logs a warning if it took longer than the threshold.
+     *
+     * @param start the value returned by {@link #start()}.
+     * @param operation describes the operation.
+     * @return true if the operation stalled.
+     */
+    public boolean end(long start, Supplier<String> operation) {
+        long elapsed = System.nanoTime() - start;
+        longestNanos.accumulateAndGet(elapsed, Math::max);
+        if(elapsed <= thresholdNanos) {
+            return false;
+        }
+        stalls.incrementAndGet();
+        if(LOGGER.isLoggable(Level.WARNING)) {
+            LOGGER.warning(String.format("%s blocked thread '%s' for %d ms (threshold %d ms)", operation.get(),
+                Thread.currentThread().getName(), elapsed / 1_000_000, thresholdNanos / 1_000_000));
+        }
+        return true;
+    }
+
+    public Duration getThreshold() {
+        return Duration.ofNanos(thresholdNanos);
+    }
+
+    /**
+     * Number of operations that took longer than the threshold.
+     *
+     * @return
+     */
+    public long getStallCount() {
+        return stalls.get();
+    }
+
+    /**
+     * The longest operation so far.
+     *
+     * @return
+     */
+    public Duration getLongest() {
+        return Duration.ofNanos(longestNanos.get());
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Save and restore the entries of a {@linkplain GenericTableModel} in a compact
+ * columnar binary format. Each column is written as one block using the most
+ * compact of three encodings:
+ * </p>
+ * <ul>
+ * <li>dictionary - string columns; distinct values once, then a code per row.</li>
+ * <li>primitive - columns whose values share one non-null type; untagged payloads.</li>
+ * <li>tagged - anything else; every value with its type tag.</li>
+ * </ul>
+ * <p>
+ * Columns are matched by name on restore so an archive survives added or removed
+ * columns; unknown columns are skipped. Only column fields are saved, values from
+ * {@linkplain GenericTableModel#columnGet(int, java.util.function.Function)} are not.
+ * Entries are restored by setting the columns of empty entries, so records, whose
+ * components are read-only, cannot be restored; their columns are skipped.
+ * </p>
+ *
+ * @author thinh ho
+ */
+public final class TableArchive {
+    /**
+     * Leading bytes of an archive ("GTA1").
+     */
+    public static final int MAGIC = 0x47544131;
+
+    private static final int TAGGED = 0;
+    private static final int DICTIONARY = 1;
+    private static final int PRIMITIVE = 2;
+
+    private TableArchive() {}
+
+    /**
+     * Write all model entries to the channel. Must be called on the EDT (or while
+     * the model is not modified); the channel is not closed.
+     *
+     * @param model
+     * @param channel
+     * @return the number of bytes written.
+     * @throws IOException
+     */
+    public static <T> long save(GenericTableModel<T> model, WritableByteChannel channel) throws IOException {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        Objects.requireNonNull(channel, "Required non-null WritableByteChannel");
+        ByteChannelWriter out = new ByteChannelWriter(channel);
+        int rowCount = model.getRowCount();
+        List<Integer> columns = new ArrayList<>();
+        for(int c = 0; c < model.getColumnCount(); c++) {
+            if(model.accessor(c) != null) {
+                columns.add(c);
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeVarLong(columns.size());
+        for(int c : columns) {
+            out.writeString(model.getColumnName(c));
+            out.writeString(model.getColumnClass(c).getName());
+        }
+        out.writeVarLong(rowCount);
+        for(int c : columns) {
+            writeColumn(out, model, c, rowCount);
+        }
+        out.flush();
+        return out.position();
+    }
+
+    /**
+     * Read the entries of an archive without touching the model, so this may be
+     * called from a background thread; hand the result to
+     * {@linkplain GenericTableModel#setEntries(java.util.Collection)} on the EDT.
+     *
+     * @param model the model describing the columns.
+     * @param channel
+     * @param factory creates an empty entry for each row.
+     * @return
+     * @throws IOException
+     */
+    public static <T> List<T> read(GenericTableModel<T> model, ReadableByteChannel channel, Supplier<T> factory) throws IOException {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        Objects.requireNonNull(channel, "Required non-null ReadableByteChannel");
+        Objects.requireNonNull(factory, "Required non-null Supplier");
+        ByteChannelReader in = new ByteChannelReader(channel);
+        if(in.readInt() != MAGIC) {
+            throw new IOException("Not a table archive");
+        }
+        int columnCount = (int)in.readVarLong();
+        ColumnAccessor[] bindings = new ColumnAccessor[columnCount];
+        Class<?>[] types = new Class<?>[columnCount];
+        for(int i = 0; i < columnCount; i++) {
+            int columnIndex = model.findColumn(in.readString());
+            in.readString();
+            ColumnAccessor accessor = columnIndex >= 0 ? model.accessor(columnIndex) : null;
+            if(accessor != null && accessor.isWritable()) {
+                bindings[i] = accessor;
+                types[i] = model.getColumnClass(columnIndex);
+            }
+        }
+        int rowCount = (int)in.readVarLong();
+        List<T> entries = new ArrayList<>(rowCount);
+        for(int r = 0; r < rowCount; r++) {
+            entries.add(factory.get());
+        }
+        for(int i = 0; i < columnCount; i++) {
+            readColumn(in, entries, bindings[i], types[i]);
+        }
+        return entries;
+    }
+
+    /**
+     * Replace the model entries with the archive entries as a single data change.
+     * Must be called on the EDT.
+     *
+     * @param model
+     * @param channel
+     * @param factory creates an empty entry for each row.
+     * @return the number of restored entries.
+     * @throws IOException
+     */
+    public static <T> int restore(GenericTableModel<T> model, ReadableByteChannel channel, Supplier<T> factory) throws IOException {
+        List<T> entries = read(model, channel, factory);
+        model.setEntries(entries);
+        return entries.size();
+    }
+
+    private static <T> void writeColumn(ByteChannelWriter out, GenericTableModel<T> model, int column, int rowCount) throws IOException {
+        // first pass decides on the encoding
+        boolean strings = true;
+        int tag = -1;
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        for(int r = 0; r < rowCount; r++) {
+            Object value = model.getFieldValue(column, model.getEntry(r));
+            int t = ColumnTypes.tagOf(value);
+            tag = tag == -1 || tag == t ? t : -2;
+            if(strings && value != null) {
+                if(value instanceof String) {
+                    if(dictionary.putIfAbsent((String)value, dictionary.size()) == null) {
+                        values.add((String)value);
+                    }
+                } else {
+                    strings = false;
+                }
+            }
+        }
+
+        if(strings && rowCount > 0) {
+            out.writeByte(DICTIONARY);
+            out.writeVarLong(values.size());
+            for(String value : values) {
+                out.writeString(value);
+            }
+            for(int r = 0; r < rowCount; r++) {
+                Object value = model.getFieldValue(column, model.getEntry(r));
+                out.writeVarLong(value == null ? 0 : dictionary.get(value) + 1);
+            }
+        } else if(tag >= 0 && tag != ColumnTypes.NULL && tag != ColumnTypes.TRUE && tag != ColumnTypes.FALSE) {
+            out.writeByte(PRIMITIVE);
+            out.writeByte(tag);
+            for(int r = 0; r < rowCount; r++) {
+                ColumnTypes.writePayload(out, tag, model.getFieldValue(column, model.getEntry(r)));
+            }
+        } else {
+            out.writeByte(TAGGED);
+            for(int r = 0; r < rowCount; r++) {
+                ColumnTypes.write(out, model.getFieldValue(column, model.getEntry(r)));
+            }
+        }
+    }
+
+    private static <T> void readColumn(ByteChannelReader in, List<T> entries, ColumnAccessor accessor, Class<?> type) throws IOException {
+        int rowCount = entries.size();
+        int encoding = in.readByte();
+        switch(encoding) {
+        case DICTIONARY:
+            Object[] dictionary = new Object[(int)in.readVarLong()];
+            for(int i = 0; i < dictionary.length; i++) {
+                String value = in.readString();
+                dictionary[i] = accessor == null ? null : ColumnTypes.coerce(type, value);
+            }
+            for(int r = 0; r < rowCount; r++) {
+                int code = (int)in.readVarLong();
+                set(accessor, entries.get(r), code == 0 ? null : dictionary[code - 1]);
+            }
+            break;
+        case PRIMITIVE:
+            int tag = in.readByte();
+            for(int r = 0; r < rowCount; r++) {
+                Object value = ColumnTypes.readPayload(in, tag);
+                set(accessor, entries.get(r), accessor == null ? null : ColumnTypes.coerce(type, value));
+            }
+            break;
+        case TAGGED:
+            for(int r = 0; r < rowCount; r++) {
+                Object value = ColumnTypes.read(in);
+                set(accessor, entries.get(r), accessor == null ? null : ColumnTypes.coerce(type, value));
+            }
+            break;
+        default:
+            throw new IOException("Unknown column encoding: " + encoding);
+        }
+    }
+
+    private static void set(ColumnAccessor accessor, Object entry, Object value) throws IOException {
+        if(accessor != null && (value != null || !accessor.getType().isPrimitive())) {
+            try {
+                accessor.set(entry, value);
+            } catch (IllegalArgumentException | ClassCastException e) {
+                throw new IOException("Cannot restore column: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+import javax.swing.SwingWorker;
+
+/**
+ * <p>
+ * Export table rows to a byte channel in the background. A {@linkplain TableSnapshot}
+ * of the exported rows and columns is taken when the exporter is created (on the EDT)
+ * so the export is consistent regardless of later model changes, and dropped once the
+ * export is done; reading values, formatting, encoding and writing happen on the worker
+ * thread through a single reusable buffer. The channel is not closed by the exporter.
+ * The result is the number of bytes written.
+ * </p>
+ *
+ * <p>
+ * The binary layout is: the magic number {@link #MAGIC},
+ * the column count followed by each column name and type name, the row count, and
+ * then the row-major values each as a type tag followed by its payload.
+ * </p>
+ *
+ * @author thinh ho
+ * @see GenericTableController#export(WritableByteChannel, TableFormat)
+ * @see GenericTableController#exportBinary(WritableByteChannel)
+ */
+public class TableExporter extends SwingWorker<Long, Void> {
+    /**
+     * Leading bytes of the binary format ("GTB1").
+     */
+    public static final int MAGIC = 0x47544231;
+
+    private final WritableByteChannel channel;
+    /**
+     * Null for binary.
+     */
+    private final TableFormat format;
+    private final String[] names;
+    private final Class<?>[] types;
+    private volatile TableSnapshot<?> snapshot;
+    private final int[] rows;
+    private final int[] columns;
+    private final int rowCount;
+
+    /**
+     * Capture the specified rows and columns of the model for a text export; must be
+     * called on the EDT.
+     *
+     * @param model
+     * @param rows model row indices in export order.
+     * @param columns model column indices in export order.
+     * @param channel
+     * @param format
+     */
+    public TableExporter(GenericTableModel<?> model, int[] rows, int[] columns, WritableByteChannel channel, TableFormat format) {
+        this(Objects.requireNonNull(format, "Required non-null TableFormat"), model, rows, columns, channel);
+    }
+
+    /**
+     * Capture the specified rows and columns of the model for a binary export; must be
+     * called on the EDT.
+     *
+     * @param model
+     * @param rows model row indices in export order.
+     * @param columns model column indices in export order.
+     * @param channel
+     */
+    public TableExporter(GenericTableModel<?> model, int[] rows, int[] columns, WritableByteChannel channel) {
+        this(null, model, rows, columns, channel);
+    }
+
+    /**
+     * @param format the text format; or null for binary.
+     */
+    private TableExporter(TableFormat format, GenericTableModel<?> model, int[] rows, int[] columns, WritableByteChannel channel) {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        Objects.requireNonNull(rows, "Required non-null rows");
+        Objects.requireNonNull(columns, "Required non-null columns");
+        Objects.requireNonNull(channel, "Required non-null WritableByteChannel");
+        this.channel = channel;
+        this.format = format;
+        this.snapshot = model.snapshot(rows, columns);
+        this.rows = rows.clone();
+        this.columns = columns.clone();
+        this.rowCount = rows.length;
+        this.names = new String[columns.length];
+        this.types = new Class<?>[columns.length];
+        for(int c = 0; c < columns.length; c++) {
+            names[c] = model.getColumnName(columns[c]);
+            types[c] = model.getColumnClass(columns[c]);
+        }
+    }
+
+    @Override
+    protected Long doInBackground() throws Exception {
+        ByteChannelWriter out = new ByteChannelWriter(channel);
+        try {
+            if(format != null) {
+                writeText(out);
+            } else {
+                writeBinary(out);
+            }
+        } finally {
+            snapshot = null;
+        }
+        out.flush();
+        if(!isCancelled()) {
+            setProgress(100);
+        }
+        return out.position();
+    }
+
+    private void writeText(ByteChannelWriter out) throws IOException {
+        for(int c = 0; c < names.length; c++) {
+            writeField(out, c, names[c]);
+        }
+        out.writeByte('\n');
+        for(int r = 0; r < rowCount && !isCancelled(); r++) {
+            for(int c = 0; c < names.length; c++) {
+                Object value = snapshot.getValueAt(rows[r], columns[c]);
+                writeField(out, c, value == null ? "" : value.toString());
+            }
+            out.writeByte('\n');
+            progress(r);
+        }
+    }
+
+    private void writeField(ByteChannelWriter out, int column, String text) throws IOException {
+        if(column > 0) {
+            out.writeByte(format.delimiter());
+        }
+        if(format.quoted()) {
+            if(needsQuotes(text)) {
+                out.writeByte('"');
+                out.writeChars(text.replace("\"", "\"\""));
+                out.writeByte('"');
+            } else {
+                out.writeChars(text);
+            }
+        } else {
+            out.writeChars(text.indexOf(format.delimiter()) < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0
+                ? text : text.replace(format.delimiter(), ' ').replace('\n', ' ').replace('\r', ' '));
+        }
+    }
+
+    private boolean needsQuotes(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == format.delimiter() || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeBinary(ByteChannelWriter out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeVarLong(names.length);
+        for(int c = 0; c < names.length; c++) {
+            out.writeString(names[c]);
+            out.writeString(types[c].getName());
+        }
+        out.writeVarLong(rowCount);
+        for(int r = 0; r < rowCount && !isCancelled(); r++) {
+            for(int c = 0; c < names.length; c++) {
+                ColumnTypes.write(out, snapshot.getValueAt(rows[r], columns[c]));
+            }
+            progress(r);
+        }
+    }
+
+    private void progress(int row) {
+        if((row & 0xFFF) == 0) {
+            setProgress((int)((long)row * 100 / rowCount));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+/**
+ * Delimited text formats for importing and exporting table entries. The binary
+ * format is export only, see {@linkplain TableExporter}.
+ *
+ * @author thinh ho
+ */
+public enum TableFormat {
+    /**
+     * Comma separated values with double-quote escaping.
+     */
+    CSV(',', true),
+    /**
+     * Tab separated values without quoting.
+     */
+    TSV('\t', false);
+
+    private final char delimiter;
+    private final boolean quoted;
+
+    private TableFormat(char delimiter, boolean quoted) {
+        this.delimiter = delimiter;
+        this.quoted = quoted;
+    }
+
+    /**
+     * Field delimiter.
+     *
+     * @return
+     */
+    public char delimiter() {
+        return delimiter;
+    }
+
+    /**
+     * True if fields may be enclosed in double-quotes.
+     *
+     * @return
+     */
+    public boolean quoted() {
+        return quoted;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.swing.SwingWorker;
+
+/**
+ * <p>
+ * Import CSV/TSV files into a {@linkplain GenericTableModel} in the background.
+ * The first record of the file is the header whose names are matched against
+ * the {@linkplain OrderedColumn#name()} of the model; unmatched headers are ignored.
+ * Values are converted per {@linkplain OrderedColumn#type()}. Values are set on
+ * empty entries, so columns that cannot be set, e.g. the components of a record,
+ * are not imported; records cannot be imported.
+ * </p>
+ *
+ * <p>
+ * Parsing happens on the worker thread; parsed entries are handed to the model
+ * on the EDT in coalesced batches, each as a single insert event. Progress (0-100)
+ * is reported via the {@code progress} bound property and the import stops at the
+ * next buffer boundary if cancelled. The result is the number of imported entries.
+ * </p>
+ * <pre>
+ * TableImporter&lt;Animal&gt; importer = new TableImporter&lt;&gt;(model, path, TableFormat.CSV, Animal::new);
+ * importer.addPropertyChangeListener(...);
+ * importer.execute();
+ * </pre>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ */
+public class TableImporter<T> extends SwingWorker<Integer, List<T>> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int BATCH_SIZE = 1024;
+
+    private final GenericTableModel<T> model;
+    private final Path path;
+    private final TableFormat format;
+    private final Supplier<T> factory;
+
+    /**
+     * Parser state.
+     */
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> record = new ArrayList<>();
+    private boolean inQuotes;
+    private boolean quoteClosed;
+    private long line = 1;
+
+    /**
+     * Column binding per header position; null if the header is not a column.
+     */
+    private ColumnAccessor[] bindings;
+    private Class<?>[] types;
+    private String[] names;
+    private List<T> batch = new ArrayList<>(BATCH_SIZE);
+    private int count;
+
+    /**
+     * Import the file at the specified path into the model.
+     *
+     * @param model
+     * @param path
+     * @param format
+     * @param factory creates an empty entry for each record.
+     */
+    public TableImporter(GenericTableModel<T> model, Path path, TableFormat format, Supplier<T> factory) {
+        Objects.requireNonNull(model, "Required non-null GenericTableModel");
+        Objects.requireNonNull(path, "Required non-null Path");
+        Objects.requireNonNull(format, "Required non-null TableFormat");
+        Objects.requireNonNull(factory, "Required non-null Supplier");
+        this.model = model;
+        this.path = path;
+        this.format = format;
+        this.factory = factory;
+    }
+
+    @Override
+    protected Integer doInBackground() throws Exception {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boolean eof = false;
+            while(!eof && !isCancelled()) {
+                eof = channel.read(bytes) < 0;
+                bytes.flip();
+                decoder.decode(bytes, chars, eof);
+                if(eof) {
+                    decoder.flush(chars);
+                }
+                chars.flip();
+                parse(chars);
+                chars.clear();
+                bytes.compact();
+                if(size > 0) {
+                    setProgress((int)Math.min(100, channel.position() * 100 / size));
+                }
+            }
+        }
+        if(!isCancelled()) {
+            if(field.length() > 0 || !record.isEmpty()) {
+                endRecord();
+            }
+            flush();
+            setProgress(100);
+        }
+        return count;
+    }
+
+    @Override
+    protected void process(List<List<T>> chunks) {
+        if(chunks.size() == 1) {
+            model.addEntries(chunks.get(0));
+        } else {
+            List<T> entries = new ArrayList<>();
+            chunks.forEach(entries::addAll);
+            model.addEntries(entries);
+        }
+    }
+
+    private void parse(CharBuffer chars) {
+        char delimiter = format.delimiter();
+        boolean quoted = format.quoted();
+        while(chars.hasRemaining()) {
+            char c = chars.get();
+            if(inQuotes) {
+                if(c == '"') {
+                    inQuotes = false;
+                    quoteClosed = true;
+                } else {
+                    if(c == '\n') {
+                        line++;
+                    }
+                    field.append(c);
+                }
+            } else if(quoted && c == '"') {
+                // a quote right after a closing quote is an escaped quote
+                if(quoteClosed) {
+                    field.append('"');
+                }
+                inQuotes = true;
+                quoteClosed = false;
+            } else {
+                quoteClosed = false;
+                if(c == delimiter) {
+                    endField();
+                } else if(c == '\n') {
+                    endRecord();
+                    line++;
+                } else if(c != '\r') {
+                    field.append(c);
+                }
+            }
+        }
+    }
+
+    private void endField() {
+        record.add(field.toString());
+        field.setLength(0);
+    }
+
+    private void endRecord() {
+        endField();
+        if(record.size() > 1 || !record.get(0).isEmpty()) {
+            if(bindings == null) {
+                bind(record);
+            } else {
+                entry(record);
+            }
+        }
+        record.clear();
+    }
+
+    private void bind(List<String> headers) {
+        bindings = new ColumnAccessor[headers.size()];
+        types = new Class<?>[headers.size()];
+        names = headers.toArray(new String[0]);
+        for(int i = 0; i < headers.size(); i++) {
+            int columnIndex = model.findColumn(headers.get(i).trim());
+            ColumnAccessor accessor = columnIndex >= 0 ? model.accessor(columnIndex) : null;
+            if(accessor != null && accessor.isWritable()) {
+                bindings[i] = accessor;
+                types[i] = model.getColumnClass(columnIndex);
+            }
+        }
+    }
+
+    private void entry(List<String> values) {
+        T entry = factory.get();
+        int size = Math.min(values.size(), bindings.length);
+        for(int i = 0; i < size; i++) {
+            ColumnAccessor accessor = bindings[i];
+            if(accessor != null) {
+                try {
+                    Object value = ColumnTypes.parse(types[i], values.get(i));
+                    if(value != null || !accessor.getType().isPrimitive()) {
+                        accessor.set(entry, value);
+                    }
+                } catch (IllegalArgumentException | ClassCastException e) {
+                    throw new IllegalArgumentException(String.format("Line %d, column %s: %s", line, names[i], e.getMessage()), e);
+                }
+            }
+        }
+        batch.add(entry);
+        count++;
+        if(batch.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if(!batch.isEmpty()) {
+            publish(batch);
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+    }
+}
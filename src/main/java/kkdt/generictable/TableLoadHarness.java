@@ -0,0 +1,455 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * <p>
+ * Load test of a table: synthetic producers change the model at fixed rates on
+ * the EDT while the table is painted offscreen, e.g.
+ * </p>
+ * <pre>
+ * TableLoadHarness.Report report = new TableLoadHarness&lt;&gt;(controller)
+ *     .appender(Quote::random, 5000)
+ *     .producer(m -&gt; m.fireTableRowsUpdated(0, m.size() - 1), 20)
+ *     .detectStalls(Duration.ofMillis(50))
+ *     .run(Duration.ofSeconds(30));
+ * </pre>
+ *
+ * <p>
+ * The report has the EDT latency percentiles (how long a task posted to the EDT
+ * waits before it runs), the number of operations, paints and table events, and
+ * the allocation rate of the EDT. It runs headless; the report is also logged to
+ * the {@code kkdt.generictable.TableLoadHarness} logger.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ */
+public class TableLoadHarness<T> {
+    private static final Logger LOGGER = Logger.getLogger(TableLoadHarness.class.getName());
+
+    private final JTable table;
+    private final GenericTableModel<T> model;
+    private final List<Producer<T>> producers = new ArrayList<>();
+    private Duration paintInterval = Duration.ofMillis(16);
+    private Duration probeInterval = Duration.ofMillis(5);
+    private int width = 800;
+    private int height = 600;
+    private StallDetector stallDetector;
+
+    public TableLoadHarness(GenericTableController<T> controller) {
+        Objects.requireNonNull(controller, "Required non-null GenericTableController");
+        this.table = controller.getTable();
+        this.model = controller.getModel();
+    }
+
+    /**
+     * Run the operation on the model at the specified rate.
+     *
+     * @param operation
+     * @param ratePerSecond
+     * @return
+     */
+    public TableLoadHarness<T> producer(Consumer<GenericTableModel<T>> operation, int ratePerSecond) {
+        Objects.requireNonNull(operation, "Required non-null operation");
+        if(ratePerSecond < 1) {
+            throw new IllegalArgumentException("Invalid rate: " + ratePerSecond);
+        }
+        producers.add(new Producer<>(operation, ratePerSecond));
+        return this;
+    }
+
+    /**
+     * Add the supplied entries to the model at the specified rate.
+     *
+     * @param entries
+     * @param ratePerSecond
+     * @return
+     */
+    public TableLoadHarness<T> appender(Supplier<T> entries, int ratePerSecond) {
+        Objects.requireNonNull(entries, "Required non-null entries");
+        return producer(m -> m.addEntry(entries.get()), ratePerSecond);
+    }
+
+    /**
+     * How often the table is painted; 16 ms by default.
+     *
+     * @param interval
+     * @return
+     */
+    public TableLoadHarness<T> paintInterval(Duration interval) {
+        this.paintInterval = positive(interval);
+        return this;
+    }
+
+    /**
+     * How often the EDT latency is sampled; 5 ms by default.
+     *
+     * @param interval
+     * @return
+     */
+    public TableLoadHarness<T> probeInterval(Duration interval) {
+        this.probeInterval = positive(interval);
+        return this;
+    }
+
+    /**
+     * The size of the painted table; 800x600 by default.
+     *
+     * @param width
+     * @param height
+     * @return
+     */
+    public TableLoadHarness<T> viewport(int width, int height) {
+        if(width < 1 || height < 1) {
+            throw new IllegalArgumentException(String.format("Invalid viewport: %dx%d", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    /**
+     * Detect stalls of the model while the test runs.
+     *
+     * @param threshold
+     * @return
+     * @see GenericTableModel#detectStalls(StallDetector)
+     */
+    public TableLoadHarness<T> detectStalls(Duration threshold) {
+        this.stallDetector = new StallDetector(threshold);
+        return this;
+    }
+
+    private static Duration positive(Duration interval) {
+        Objects.requireNonNull(interval, "Required non-null interval");
+        if(interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Invalid interval: " + interval);
+        }
+        return interval;
+    }
+
+    /**
+     * Run the load test for the specified duration; blocks the calling thread,
+     * which must not be the EDT.
+     *
+     * @param duration
+     * @return
+     * @throws InterruptedException
+     */
+    public Report run(Duration duration) throws InterruptedException {
+        positive(duration);
+        if(SwingUtilities.isEventDispatchThread()) {
+            throw new IllegalStateException("Cannot run the load test on the EDT");
+        }
+        long[] events = new long[3];
+        TableModelListener counter = e -> {
+            switch(e.getType()) {
+            case TableModelEvent.INSERT: events[0]++; break;
+            case TableModelEvent.DELETE: events[2]++; break;
+            default: events[1]++; break;
+            }
+        };
+        long[] edt = new long[1];
+        StallDetector[] previous = new StallDetector[1];
+        onEdt(() -> {
+            edt[0] = Thread.currentThread().threadId();
+            model.addTableModelListener(counter);
+            if(stallDetector != null) {
+                previous[0] = model.getStallDetector();
+                model.detectStalls(stallDetector);
+            }
+        });
+
+        Latencies latencies = new Latencies();
+        AtomicLong operations = new AtomicLong();
+        AtomicLong paints = new AtomicLong();
+        AtomicBoolean probing = new AtomicBoolean();
+        AtomicBoolean painting = new AtomicBoolean();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "table-load-harness");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long allocated = allocatedBytes(edt[0]);
+        long start = System.nanoTime();
+        try {
+            for(Producer<T> producer : producers) {
+                long period = Math.max(1_000_000L, 1_000_000_000L / producer.rate);
+                scheduler.scheduleAtFixedRate(() -> {
+                    int count = producer.due(System.nanoTime() - start);
+                    if(count > 0) {
+                        SwingUtilities.invokeLater(() -> {
+                            for(int i = 0; i < count; i++) {
+                                producer.operation.accept(model);
+                            }
+                            operations.addAndGet(count);
+                        });
+                    }
+                }, period, period, TimeUnit.NANOSECONDS);
+            }
+            // one probe and one paint outstanding at a time
+            scheduler.scheduleAtFixedRate(() -> {
+                if(probing.compareAndSet(false, true)) {
+                    long posted = System.nanoTime();
+                    SwingUtilities.invokeLater(() -> {
+                        latencies.add(System.nanoTime() - posted);
+                        probing.set(false);
+                    });
+                }
+            }, 0, probeInterval.toNanos(), TimeUnit.NANOSECONDS);
+            scheduler.scheduleAtFixedRate(() -> {
+                if(painting.compareAndSet(false, true)) {
+                    SwingUtilities.invokeLater(() -> {
+                        paint(image);
+                        paints.incrementAndGet();
+                        painting.set(false);
+                    });
+                }
+            }, 0, paintInterval.toNanos(), TimeUnit.NANOSECONDS);
+            Thread.sleep(duration.toMillis());
+        } finally {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+            // wait for the posted work
+            onEdt(() -> {
+                model.removeTableModelListener(counter);
+                if(stallDetector != null) {
+                    // the detector of the application, if any
+                    model.detectStalls(previous[0]);
+                }
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedNow = allocatedBytes(edt[0]);
+        Report report = new Report(elapsed, operations.get(), paints.get(), events, latencies.sorted(),
+            allocated < 0 || allocatedNow < 0 ? -1 : allocatedNow - allocated,
+            stallDetector == null ? 0 : stallDetector.getStallCount());
+        LOGGER.info(report.toString());
+        return report;
+    }
+
+    private void paint(BufferedImage image) {
+        if(table.getWidth() != width || table.getHeight() != height) {
+            table.setSize(width, height);
+            table.doLayout();
+        }
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setClip(0, 0, width, height);
+            table.paint(g);
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void onEdt(Runnable task) throws InterruptedException {
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Load test failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Bytes allocated by the thread so far; -1 if not supported by the JVM.
+     */
+    private static long allocatedBytes(long threadId) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+            if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+
+    private static final class Producer<T> {
+        private final Consumer<GenericTableModel<T>> operation;
+        private final int rate;
+        private long scheduled;
+
+        Producer(Consumer<GenericTableModel<T>> operation, int rate) {
+            this.operation = operation;
+            this.rate = rate;
+        }
+
+        /**
+         * Operations due since the previous tick to keep the rate.
+         */
+        int due(long elapsedNanos) {
+            long total = elapsedNanos * rate / 1_000_000_000L;
+            int count = (int)(total - scheduled);
+            scheduled = total;
+            return count;
+        }
+    }
+
+    /**
+     * Latency samples, only added on the EDT.
+     */
+    private static final class Latencies {
+        private long[] samples = new long[1024];
+        private int size;
+
+        void add(long nanos) {
+            if(size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        long[] sorted() {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+
+    /**
+     * The results of a load test.
+     */
+    public static final class Report {
+        private final long elapsedNanos;
+        private final long operations;
+        private final long paints;
+        private final long[] events;
+        private final long[] latencies;
+        private final long allocatedBytes;
+        private final long stalls;
+
+        Report(long elapsedNanos, long operations, long paints, long[] events, long[] latencies, long allocatedBytes, long stalls) {
+            this.elapsedNanos = elapsedNanos;
+            this.operations = operations;
+            this.paints = paints;
+            this.events = events.clone();
+            this.latencies = latencies;
+            this.allocatedBytes = allocatedBytes;
+            this.stalls = stalls;
+        }
+
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+
+        /**
+         * Producer operations run on the EDT.
+         *
+         * @return
+         */
+        public long getOperations() {
+            return operations;
+        }
+
+        public long getPaints() {
+            return paints;
+        }
+
+        public long getInsertEvents() {
+            return events[0];
+        }
+
+        public long getUpdateEvents() {
+            return events[1];
+        }
+
+        public long getDeleteEvents() {
+            return events[2];
+        }
+
+        /**
+         * Number of EDT latency samples.
+         *
+         * @return
+         */
+        public int getSamples() {
+            return latencies.length;
+        }
+
+        /**
+         * The EDT latency at the percentile, e.g. 99 for the 99th percentile.
+         *
+         * @param percentile 0 to 100.
+         * @return the latency; or zero without samples.
+         */
+        public Duration getLatency(double percentile) {
+            if(percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile: " + percentile);
+            }
+            if(latencies.length == 0) {
+                return Duration.ZERO;
+            }
+            int index = (int)Math.ceil(percentile / 100 * latencies.length) - 1;
+            return Duration.ofNanos(latencies[Math.max(0, index)]);
+        }
+
+        /**
+         * Bytes allocated by the EDT during the test; -1 if not supported by the JVM.
+         *
+         * @return
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * Bytes allocated by the EDT per second; -1 if not supported by the JVM.
+         *
+         * @return
+         */
+        public double getAllocationRate() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Model operations that stalled; zero when stalls were not detected.
+         *
+         * @return
+         */
+        public long getStalls() {
+            return stalls;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d ms: %d operations, %d paints, events %d/%d/%d (insert/update/delete), "
+                + "EDT latency p50 %.2f ms p90 %.2f ms p99 %.2f ms max %.2f ms, EDT allocation %.1f MB/s, %d stalls",
+                elapsedNanos / 1_000_000, operations, paints, events[0], events[1], events[2],
+                millis(getLatency(50)), millis(getLatency(90)), millis(getLatency(99)), millis(getLatency(100)),
+                getAllocationRate() / (1024 * 1024), stalls);
+        }
+
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1e6;
+        }
+    }
+}
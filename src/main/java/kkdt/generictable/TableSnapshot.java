@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.swing.event.TableModelEvent;
+
+/**
+ * <p>
+ * Immutable view of the rows and column values of a {@linkplain GenericTableModel}
+ * at a point in time. Snapshots may be read from any thread.
+ * </p>
+ *
+ * <p>
+ * Rows are held in chunks of up to {@value #CHUNK_SIZE} rows together with the
+ * column values captured for those rows. The model keeps its chunks up to date as
+ * table events arrive and hands them to the snapshot as they are, so taking a
+ * snapshot copies nothing; a chunk held by a snapshot is copied once the model
+ * changes it, so consecutive snapshots share every chunk not changed in between.
+ * A snapshot taken for an export without such chunks only captures the chunks
+ * and columns exported.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#snapshot()
+ * @see GenericTableModel#retainSnapshots(boolean)
+ */
+public final class TableSnapshot<T> implements Iterable<T> {
+    static final int CHUNK_SIZE = 1024;
+
+    private final long version;
+    private final int size;
+    private final String[] columnNames;
+    /**
+     * Chunks in row order; null for chunks not captured.
+     */
+    final Chunk[] chunks;
+    /**
+     * First row of each chunk.
+     */
+    private final int[] starts;
+    private final int chunkCount;
+
+    TableSnapshot(long version, int size, String[] columnNames, Chunk[] chunks, int[] starts, int chunkCount) {
+        this.version = version;
+        this.size = size;
+        this.columnNames = columnNames;
+        this.chunks = chunks;
+        this.starts = starts;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Capture the model in chunks of {@value #CHUNK_SIZE} rows. Must be called on
+     * the EDT.
+     *
+     * @param model
+     * @param version
+     * @param columns the columns to capture; or null for the shown columns.
+     * @param captured the chunks to capture; or null for all rows.
+     * @return
+     */
+    static <T> TableSnapshot<T> of(GenericTableModel<T> model, long version, boolean[] columns, BitSet captured) {
+        int size = model.getRowCount();
+        int chunkCount = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Chunk[] chunks = new Chunk[chunkCount];
+        int[] starts = new int[chunkCount];
+        for(int k = 0; k < chunkCount; k++) {
+            starts[k] = k * CHUNK_SIZE;
+            if(captured == null || captured.get(k)) {
+                chunks[k] = Chunk.capture(model, columns == null ? shownColumns(model) : columns, starts[k], Math.min(CHUNK_SIZE, size - starts[k]), 0);
+            }
+        }
+        return new TableSnapshot<>(version, size, model.columnNames, chunks, starts, chunkCount);
+    }
+
+    static boolean[] shownColumns(GenericTableModel<?> model) {
+        boolean[] columns = new boolean[model.getColumnCount()];
+        for(int c = 0; c < columns.length; c++) {
+            columns[c] = !model.isColumnHidden(c);
+        }
+        return columns;
+    }
+
+    /**
+     * The model version this snapshot was taken at; increases with every table event.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Total rows in this snapshot.
+     *
+     * @return
+     */
+    public int getRowCount() {
+        return size;
+    }
+
+    /**
+     * Total columns in this snapshot.
+     *
+     * @return
+     */
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    /**
+     * Column name.
+     *
+     * @param columnIndex
+     * @return
+     */
+    public String getColumnName(int columnIndex) {
+        return columnNames[columnIndex];
+    }
+
+    /**
+     * The entry at the specified row when the snapshot was taken. The entry itself
+     * is shared with the model; use {@link #getValueAt(int, int)} for the values as
+     * of the snapshot.
+     *
+     * @param rowIndex
+     * @return
+     * @throws IndexOutOfBoundsException
+     */
+    @SuppressWarnings("unchecked")
+    public T getEntry(int rowIndex) {
+        int k = chunkIndex(rowIndex);
+        return (T)chunks[k].rows[rowIndex - starts[k]];
+    }
+
+    /**
+     * The column value at the specified row when the snapshot was taken.
+     *
+     * @param rowIndex
+     * @param columnIndex
+     * @return the value; or null if the column was hidden.
+     * @throws IndexOutOfBoundsException
+     * @see GenericTableModel#columnHidden(int, boolean)
+     */
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int k = chunkIndex(rowIndex);
+        Object[] column = chunks[k].values[columnIndex];
+        return column == null ? null : column[rowIndex - starts[k]];
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int row;
+
+            @Override
+            public boolean hasNext() {
+                return row < size;
+            }
+
+            @Override
+            public T next() {
+                if(row >= size) {
+                    throw new NoSuchElementException();
+                }
+                return getEntry(row++);
+            }
+        };
+    }
+
+    private int chunkIndex(int rowIndex) {
+        if(rowIndex < 0 || rowIndex >= size) {
+            throw new IndexOutOfBoundsException("Row " + rowIndex + " of " + size);
+        }
+        int k = chunkOf(starts, chunkCount, rowIndex);
+        if(chunks[k] == null) {
+            throw new IndexOutOfBoundsException("Row " + rowIndex + " not captured");
+        }
+        return k;
+    }
+
+    /**
+     * The chunk holding the row, by the first row of each chunk.
+     */
+    static int chunkOf(int[] starts, int chunkCount, int rowIndex) {
+        int k = Arrays.binarySearch(starts, 0, chunkCount, rowIndex);
+        return k >= 0 ? k : -k - 2;
+    }
+
+    /**
+     * Consecutive rows and their column values. A chunk is written only by the
+     * model, and only until a snapshot holds it.
+     */
+    static final class Chunk {
+        Object[] rows;
+        /**
+         * Values per column; null for columns not captured.
+         */
+        final Object[][] values;
+        int size;
+        /**
+         * The snapshot generation that may still write the chunk.
+         */
+        final int owner;
+
+        private Chunk(Object[] rows, Object[][] values, int size, int owner) {
+            this.rows = rows;
+            this.values = values;
+            this.size = size;
+            this.owner = owner;
+        }
+
+        /**
+         * Capture {@code length} rows of the model from {@code from}.
+         */
+        static <T> Chunk capture(GenericTableModel<T> model, boolean[] columns, int from, int length, int owner) {
+            Object[][] values = new Object[columns.length][];
+            for(int c = 0; c < columns.length; c++) {
+                if(columns[c]) {
+                    values[c] = new Object[length];
+                }
+            }
+            Chunk chunk = new Chunk(new Object[length], values, length, owner);
+            chunk.capture(model, 0, from, length, TableModelEvent.ALL_COLUMNS);
+            return chunk;
+        }
+
+        /**
+         * Capture {@code length} model rows from {@code from} at {@code at}; only the
+         * specified column unless all columns.
+         */
+        <T> void capture(GenericTableModel<T> model, int at, int from, int length, int column) {
+            for(int i = 0; i < length; i++) {
+                T entry = model.getEntry(from + i);
+                if(column == TableModelEvent.ALL_COLUMNS) {
+                    rows[at + i] = entry;
+                    for(int c = 0; c < values.length; c++) {
+                        if(values[c] != null) {
+                            values[c][at + i] = model.getColumnValue(entry, c);
+                        }
+                    }
+                } else if(values[column] != null) {
+                    values[column][at + i] = model.getColumnValue(entry, column);
+                }
+            }
+        }
+
+        /**
+         * A writable copy for the specified generation.
+         */
+        Chunk copy(int owner) {
+            Object[][] copied = new Object[values.length][];
+            for(int c = 0; c < values.length; c++) {
+                if(values[c] != null) {
+                    copied[c] = values[c].clone();
+                }
+            }
+            return new Chunk(rows.clone(), copied, size, owner);
+        }
+
+        /**
+         * Open a gap of {@code count} rows at {@code at}.
+         */
+        void insert(int at, int count) {
+            if(size + count > rows.length) {
+                int capacity = Math.min(CHUNK_SIZE, Math.max(size + count, rows.length * 2));
+                rows = Arrays.copyOf(rows, capacity);
+                for(int c = 0; c < values.length; c++) {
+                    if(values[c] != null) {
+                        values[c] = Arrays.copyOf(values[c], capacity);
+                    }
+                }
+            }
+            System.arraycopy(rows, at, rows, at + count, size - at);
+            for(Object[] column : values) {
+                if(column != null) {
+                    System.arraycopy(column, at, column, at + count, size - at);
+                }
+            }
+            size += count;
+        }
+
+        /**
+         * Close the gap of {@code count} rows at {@code at}.
+         */
+        void delete(int at, int count) {
+            System.arraycopy(rows, at + count, rows, at, size - at - count);
+            Arrays.fill(rows, size - count, size, null);
+            for(Object[] column : values) {
+                if(column != null) {
+                    System.arraycopy(column, at + count, column, at, size - at - count);
+                    Arrays.fill(column, size - count, size, null);
+                }
+            }
+            size -= count;
+        }
+    }
+}
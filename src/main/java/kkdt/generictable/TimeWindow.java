@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+/**
+ * Age limit of the rows of a model by a timestamp column. A single-shot timer is
+ * armed for the expiry of the oldest row only, so an empty window costs nothing and
+ * appends never touch the timer while it is armed. The delay is the time left until
+ * the expiry by the clock of the window; the timer never wakes up before then to
+ * poll the clock. Expiry is still decided by the clock, not by the timer: a timer
+ * that fires before the clock reached the expiry is armed again for the time left.
+ * A clock moved ahead is noticed on the next change of the model, which re-arms the
+ * timer if the expiry came closer, or on {@linkplain GenericTableModel#evictExpired()}.
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ * @see GenericTableModel#timeWindow(int, Duration, Clock)
+ */
+final class TimeWindow<T> {
+    private final GenericTableModel<T> model;
+    private final int columnIndex;
+    private final long windowMillis;
+    private final Clock clock;
+    private final Timer timer;
+    /**
+     * Clock time the timer is armed for.
+     */
+    private long deadline;
+    /**
+     * System time in nanoseconds the timer fires at.
+     */
+    private long wakeup;
+
+    TimeWindow(GenericTableModel<T> model, int columnIndex, Duration window, Clock clock) {
+        Class<?> type = model.getColumnClass(columnIndex);
+        if(!isTimestamp(type)) {
+            throw new IllegalArgumentException("Not a timestamp column: " + model.getColumnName(columnIndex) + " (" + type.getName() + ")");
+        }
+        if(window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive: " + window);
+        }
+        this.model = model;
+        this.columnIndex = columnIndex;
+        this.windowMillis = window.toMillis();
+        this.clock = clock;
+        this.timer = new Timer(0, e -> expire());
+        this.timer.setRepeats(false);
+    }
+
+    long now() {
+        return clock.millis();
+    }
+
+    /**
+     * True if the entry is older than the window; entries without a timestamp
+     * are always expired.
+     *
+     * @param entry
+     * @param now
+     * @return
+     */
+    boolean isExpired(T entry, long now) {
+        return expiry(entry) <= now;
+    }
+
+    /**
+     * Arm the timer for the expiry of the first row, unless it is already armed
+     * and fires before the clock reaches that expiry.
+     */
+    void schedule() {
+        if(model.getRowCount() == 0) {
+            return;
+        }
+        if(timer.isRunning()) {
+            long left = deadline - now();
+            if(left > 0 && TimeUnit.MILLISECONDS.toNanos(left) >= wakeup - System.nanoTime()) {
+                return;
+            }
+        }
+        deadline = expiry(model.getEntry(0));
+        arm();
+    }
+
+    /**
+     * Arm the timer for the clock time remaining until the deadline.
+     */
+    private void arm() {
+        long delay = Math.max(0, Math.min(Integer.MAX_VALUE, deadline - now()));
+        timer.setInitialDelay((int)delay);
+        timer.restart();
+        wakeup = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+    }
+
+    private void expire() {
+        if(now() < deadline) {
+            // the clock runs behind the timer
+            arm();
+        } else {
+            model.evictExpired();
+        }
+    }
+
+    void stop() {
+        timer.stop();
+    }
+
+    private long expiry(T entry) {
+        Object value = model.getColumnValue(entry, columnIndex);
+        if(value == null) {
+            return Long.MIN_VALUE;
+        }
+        long timestamp;
+        if(value instanceof Instant) {
+            timestamp = ((Instant)value).toEpochMilli();
+        } else if(value instanceof Date) {
+            timestamp = ((Date)value).getTime();
+        } else if(value instanceof Number) {
+            timestamp = ((Number)value).longValue();
+        } else if(value instanceof ZonedDateTime) {
+            timestamp = ((ZonedDateTime)value).toInstant().toEpochMilli();
+        } else if(value instanceof OffsetDateTime) {
+            timestamp = ((OffsetDateTime)value).toInstant().toEpochMilli();
+        } else if(value instanceof LocalDateTime) {
+            timestamp = ((LocalDateTime)value).atZone(clock.getZone()).toInstant().toEpochMilli();
+        } else {
+            throw new IllegalStateException("Not a timestamp: " + value.getClass().getName());
+        }
+        return timestamp + windowMillis;
+    }
+
+    private static boolean isTimestamp(Class<?> type) {
+        return Instant.class.isAssignableFrom(type) || Date.class.isAssignableFrom(type)
+            || Long.class == type || long.class == type
+            || ZonedDateTime.class == type || OffsetDateTime.class == type || LocalDateTime.class == type;
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * <p>
+ * Live, read-only view of the first N entries of a {@linkplain GenericTableModel}
+ * ordered by one column, e.g. the 100 largest positions out of all of them:
+ * </p>
+ * <pre>
+ * TopNTableModel&lt;Position&gt; top = new TopNTableModel&lt;&gt;(positions, 2, SortOrder.DESCENDING, 100);
+ * </pre>
+ *
+ * <p>
+ * The view holds only its N entries, ordered by the column value captured when
+ * the entry entered the view. The source is never sorted: an insert or update is
+ * compared with the last entry of the view; only when an entry leaves the view
+ * (removed, or updated to a value past the last entry) is the source scanned once
+ * for the best entries outside the view. Removals are incremental when the source
+ * fires {@linkplain GenericTableModelEvent}s (as {@linkplain GenericTableModel}
+ * does); any other removal or data change re-scans the source.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ */
+public class TopNTableModel<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 6203197758424715905L;
+
+    private final GenericTableModel<T> source;
+    private final int columnIndex;
+    private final int limit;
+    private final Comparator<Object> keys;
+    private final transient TableModelListener listener = this::sourceChanged;
+
+    /**
+     * The view entries in order.
+     */
+    private final TreeSet<Item<T>> top;
+    private final Map<T, Item<T>> members = new IdentityHashMap<>();
+    /**
+     * The rows of the view; null when the view changed since.
+     */
+    private List<T> rows;
+    private long sequence;
+
+    /**
+     * Natural order of the column values, nulls last.
+     *
+     * @param source
+     * @param columnIndex
+     * @param order ascending or descending.
+     * @param limit the maximum number of rows.
+     */
+    public TopNTableModel(GenericTableModel<T> source, int columnIndex, SortOrder order, int limit) {
+        this(source, columnIndex, naturalOrder(order), limit);
+    }
+
+    /**
+     * Order the column values by the comparator.
+     *
+     * @param source
+     * @param columnIndex
+     * @param comparator compares the column values, including null.
+     * @param limit the maximum number of rows.
+     */
+    public TopNTableModel(GenericTableModel<T> source, int columnIndex, Comparator<?> comparator, int limit) {
+        Objects.requireNonNull(source, "Required non-null GenericTableModel");
+        Objects.requireNonNull(comparator, "Required non-null Comparator");
+        if(columnIndex < 0 || columnIndex >= source.getColumnCount()) {
+            throw new IllegalArgumentException("Invalid column: " + columnIndex);
+        }
+        if(limit < 1) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        this.source = source;
+        this.columnIndex = columnIndex;
+        this.limit = limit;
+        @SuppressWarnings("unchecked")
+        Comparator<Object> keys = (Comparator<Object>)comparator;
+        this.keys = keys;
+        this.top = new TreeSet<>((a, b) -> {
+            int result = keys.compare(a.key, b.key);
+            return result != 0 ? result : Long.compare(a.sequence, b.sequence);
+        });
+        refill();
+        source.addTableModelListener(listener);
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Comparator<?> naturalOrder(SortOrder order) {
+        Objects.requireNonNull(order, "Required non-null SortOrder");
+        if(order == SortOrder.UNSORTED) {
+            throw new IllegalArgumentException("Required ascending or descending order");
+        }
+        Comparator<Comparable> natural = Comparator.naturalOrder();
+        return Comparator.nullsLast(order == SortOrder.ASCENDING ? natural : natural.reversed());
+    }
+
+    /**
+     * Stop listening to the source model.
+     */
+    public void release() {
+        source.removeTableModelListener(listener);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public int getRowCount() {
+        return top.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return source.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return source.getColumnName(columnIndex);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return source.getColumnClass(columnIndex);
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        return source.getColumnValue(getEntry(rowIndex), columnIndex);
+    }
+
+    /**
+     * The entry at the specified row of this view.
+     *
+     * @param rowIndex
+     * @return
+     */
+    public T getEntry(int rowIndex) {
+        return rows().get(rowIndex);
+    }
+
+    private List<T> rows() {
+        if(rows == null) {
+            List<T> list = new ArrayList<>(top.size());
+            top.forEach(item -> list.add(item.entry));
+            rows = list;
+        }
+        return rows;
+    }
+
+    private void sourceChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        if(first == TableModelEvent.HEADER_ROW) {
+            structureChanged();
+            return;
+        }
+        if(!hasKeyColumn()) {
+            // nothing to order by until the column is back
+            return;
+        }
+        List<T> previous = rows();
+        Set<T> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        if(last == Integer.MAX_VALUE) {
+            top.clear();
+            members.clear();
+            refill();
+        } else {
+            switch(e.getType()) {
+            case TableModelEvent.INSERT:
+                for(int row = first; row <= last; row++) {
+                    offer(source.getEntry(row));
+                }
+                break;
+            case TableModelEvent.DELETE:
+                if(!(e instanceof GenericTableModelEvent)) {
+                    top.clear();
+                    members.clear();
+                    refill();
+                    break;
+                }
+                boolean left = false;
+                for(Object removed : ((GenericTableModelEvent<?>)e).getEntries()) {
+                    Item<T> item = members.remove(removed);
+                    if(item != null) {
+                        top.remove(item);
+                        left = true;
+                    }
+                }
+                if(left) {
+                    refill();
+                }
+                break;
+            default:
+                boolean keyChanged = e.getColumn() == TableModelEvent.ALL_COLUMNS || e.getColumn() == columnIndex;
+                boolean leave = false;
+                for(int row = first; row <= last; row++) {
+                    T entry = source.getEntry(row);
+                    Item<T> item = members.get(entry);
+                    if(item != null) {
+                        updated.add(entry);
+                        if(keyChanged) {
+                            leave |= !rekey(item);
+                        }
+                    } else if(keyChanged) {
+                        offer(entry);
+                    }
+                }
+                if(leave) {
+                    refill();
+                }
+                break;
+            }
+        }
+        rows = null;
+        fireChanges(previous, rows(), updated);
+    }
+
+    /**
+     * The columns of the source may have changed: rebuild the view, which is empty
+     * while the source has no column at the ordering column index.
+     */
+    private void structureChanged() {
+        top.clear();
+        members.clear();
+        if(hasKeyColumn()) {
+            refill();
+        }
+        rows = null;
+        fireTableStructureChanged();
+    }
+
+    private boolean hasKeyColumn() {
+        return columnIndex < source.getColumnCount();
+    }
+
+    /**
+     * Add the entry if it belongs in the view, dropping the last entry if full.
+     */
+    private void offer(T entry) {
+        Item<T> item = new Item<>(entry, source.getColumnValue(entry, columnIndex), sequence++);
+        if(top.size() >= limit) {
+            Item<T> last = top.last();
+            if(top.comparator().compare(item, last) >= 0) {
+                return;
+            }
+            top.pollLast();
+            members.remove(last.entry);
+        }
+        top.add(item);
+        members.put(entry, item);
+    }
+
+    /**
+     * Capture the new key of a member.
+     *
+     * @return false if the member left the view and entries outside the view may
+     * belong in it now.
+     */
+    private boolean rekey(Item<T> item) {
+        Object key = source.getColumnValue(item.entry, columnIndex);
+        if(keys.compare(key, item.key) == 0) {
+            return true;
+        }
+        // entries outside the view are no better than the last entry
+        Item<T> last = top.last();
+        top.remove(item);
+        Item<T> next = new Item<>(item.entry, key, item.sequence);
+        if(members.size() == source.getRowCount() || top.comparator().compare(next, last) < 0) {
+            top.add(next);
+            members.put(item.entry, next);
+            return true;
+        }
+        members.remove(item.entry);
+        return false;
+    }
+
+    /**
+     * Fill the view with the best entries outside it; one scan of the source.
+     */
+    private void refill() {
+        if(top.size() >= limit || top.size() >= source.getRowCount()) {
+            return;
+        }
+        for(int row = 0; row < source.getRowCount(); row++) {
+            T entry = source.getEntry(row);
+            if(!members.containsKey(entry)) {
+                offer(entry);
+            }
+        }
+    }
+
+    /**
+     * Fire the fewest events turning the previous rows into the current rows.
+     */
+    private void fireChanges(List<T> previous, List<T> current, Set<T> updated) {
+        int prefix = 0;
+        int common = Math.min(previous.size(), current.size());
+        while(prefix < common && previous.get(prefix) == current.get(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while(suffix < common - prefix && previous.get(previous.size() - 1 - suffix) == current.get(current.size() - 1 - suffix)) {
+            suffix++;
+        }
+        int removed = previous.size() - prefix - suffix;
+        int added = current.size() - prefix - suffix;
+        int replaced = Math.min(removed, added);
+        if(replaced > 0) {
+            fireTableRowsUpdated(prefix, prefix + replaced - 1);
+        }
+        if(removed > replaced) {
+            List<T> entries = new ArrayList<>(previous.subList(prefix + replaced, prefix + removed));
+            fireTableChanged(new GenericTableModelEvent<>(this, prefix + replaced, prefix + removed - 1, TableModelEvent.DELETE, entries));
+        } else if(added > replaced) {
+            fireTableRowsInserted(prefix + replaced, prefix + added - 1);
+        }
+        // updated entries that kept their row
+        for(int row = 0; row < current.size(); row++) {
+            if((row < prefix || row >= current.size() - suffix) && updated.contains(current.get(row))) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
+
+    private static final class Item<T> {
+        private final T entry;
+        private final Object key;
+        private final long sequence;
+
+        Item(T entry, Object key, long sequence) {
+            this.entry = entry;
+            this.key = key;
+            this.sequence = sequence;
+        }
+    }
+}
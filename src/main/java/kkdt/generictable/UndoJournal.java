@@ -0,0 +1,562 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.swing.event.TableModelEvent;
+
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoableEditSupport;
+
+/**
+ * <p>
+ * Undoable edits of a {@linkplain GenericTableModel}, posted to the model's
+ * {@linkplain javax.swing.event.UndoableEditListener}s, e.g. an
+ * {@linkplain javax.swing.undo.UndoManager}. An edit only holds the delta: the
+ * entry and column with the old and new value of a cell, or the entries and
+ * first row of an insert or removal. Entries are shared with the model, never
+ * copied. The recorded rows are shifted by the inserts and deletes of the model,
+ * so undo and redo never look rows up. Rows removed by an edit take the recorded
+ * rows within them along, and put them back when the edit puts the rows back.
+ * </p>
+ *
+ * <p>
+ * Changes of more than {@link #MAX_ROWS} rows, and replacing the rows of a
+ * {@linkplain SpillingRowStore}, are not kept: a non-undoable edit is posted
+ * instead, so nothing before it can be undone. Edits of rows removed otherwise,
+ * e.g. evicted by a {@linkplain TimeWindow}, can no longer be undone or redone.
+ * </p>
+ *
+ * <p>
+ * Edits made in a {@linkplain GenericTableModel#batch(java.util.function.Consumer)}
+ * are posted as one compound edit, which is undone and redone as a batch too; a
+ * batch without edits posts nothing.
+ * </p>
+ *
+ * @author thinh ho
+ *
+ * @param <T> The underlying UI model.
+ */
+final class UndoJournal<T> extends UndoableEditSupport {
+    /**
+     * The most rows an edit keeps.
+     */
+    static final int MAX_ROWS = 10_000;
+
+    private final GenericTableModel<T> model;
+    /**
+     * True while undoing or redoing, so nothing is recorded.
+     */
+    private boolean replaying;
+    /**
+     * Total rows evicted from the front of the model.
+     */
+    private long evicted;
+    /**
+     * The recorded rows in the model, shifted by inserts and deletes; edits that are
+     * no longer referenced drop out.
+     */
+    private final Set<Position> positions = Collections.newSetFromMap(new WeakHashMap<>());
+    /**
+     * Recorded rows removed by the latest deletes, for the edit removing them.
+     */
+    private final List<Position> detached = new ArrayList<>();
+
+    UndoJournal(GenericTableModel<T> model) {
+        super(model);
+        this.model = model;
+    }
+
+    /**
+     * True if changes are recorded: there are listeners and no edit is being
+     * undone or redone.
+     *
+     * @return
+     */
+    boolean isRecording() {
+        return !replaying && getUndoableEditListeners().length > 0;
+    }
+
+    boolean isReplaying() {
+        return replaying;
+    }
+
+    void recordCell(T entry, int rowIndex, int columnIndex, Object oldValue, Object newValue) {
+        postEdit(new CellEdit(entry, rowIndex, columnIndex, oldValue, newValue));
+    }
+
+    void recordInsert(int firstRow, List<T> entries) {
+        postEdit(entries.size() > MAX_ROWS ? new Barrier("Add") : new RowsEdit(firstRow, entries, true));
+    }
+
+    void recordRemove(int firstRow, List<T> entries) {
+        if(entries.size() > MAX_ROWS) {
+            detached.clear();
+        }
+        postEdit(entries.size() > MAX_ROWS ? new Barrier("Remove") : new RowsEdit(firstRow, entries, false));
+    }
+
+    /**
+     * A copy of the rows to undo their replacement by.
+     *
+     * @param rows the rows about to be replaced.
+     * @param replacing the number of rows replacing them.
+     * @return the copy; or null if too large to keep.
+     */
+    List<T> keep(List<T> rows, int replacing) {
+        if(rows instanceof SpillingRowStore || rows.size() + replacing > MAX_ROWS) {
+            // copying would read every spilled row back
+            return null;
+        }
+        return new ArrayList<>(rows);
+    }
+
+    /**
+     * @param oldEntries the rows kept by {@link #keep(List, int)}.
+     * @param newEntries
+     */
+    void recordReplace(List<T> oldEntries, List<T> newEntries) {
+        if(oldEntries == null || oldEntries.size() + newEntries.size() > MAX_ROWS) {
+            detached.clear();
+        }
+        postEdit(oldEntries == null || oldEntries.size() + newEntries.size() > MAX_ROWS
+            ? new Barrier("Replace") : new ReplaceEdit(oldEntries, new ArrayList<>(newEntries)));
+    }
+
+    /**
+     * Rows were evicted from the front of the model; the recorded rows within them
+     * are gone for good.
+     *
+     * @param count
+     */
+    void recordEviction(int count) {
+        evicted += count;
+        detached.clear();
+    }
+
+    /**
+     * Shift the recorded rows by the model event, before any listener is notified.
+     *
+     * @param e
+     */
+    void rowsChanged(TableModelEvent e) {
+        int first = e.getFirstRow();
+        int last = e.getLastRow();
+        boolean all = first == TableModelEvent.HEADER_ROW || last == Integer.MAX_VALUE;
+        if(all || e.getType() != TableModelEvent.DELETE) {
+            detached.clear();
+        }
+        if(positions.isEmpty() || (!all && e.getType() == TableModelEvent.UPDATE)) {
+            return;
+        }
+        if(all) {
+            relocate();
+            return;
+        }
+        int count = last - first + 1;
+        for(Iterator<Position> i = positions.iterator(); i.hasNext();) {
+            Position p = i.next();
+            if(e.getType() == TableModelEvent.DELETE && p.row >= first && p.row <= last) {
+                detach(p);
+                i.remove();
+            } else if(p.row >= first) {
+                p.row += e.getType() == TableModelEvent.INSERT ? count : -count;
+            }
+        }
+    }
+
+    /**
+     * Find the recorded entries after all rows changed; any other recorded row is
+     * removed.
+     */
+    private void relocate() {
+        Map<T, List<Position>> entries = new IdentityHashMap<>();
+        for(Iterator<Position> i = positions.iterator(); i.hasNext();) {
+            Position p = i.next();
+            detach(p);
+            if(p.entry == null) {
+                i.remove();
+            } else {
+                entries.computeIfAbsent(p.entry, k -> new ArrayList<>()).add(p);
+            }
+        }
+        for(int row = 0; row < model.getRowCount() && !entries.isEmpty(); row++) {
+            List<Position> found = entries.remove(model.getEntry(row));
+            if(found != null) {
+                for(Position p : found) {
+                    p.row = row;
+                    detached.remove(p);
+                }
+            }
+        }
+        entries.values().forEach(found -> found.forEach(positions::remove));
+    }
+
+    private void detach(Position p) {
+        p.saved = p.row;
+        p.row = -1;
+        detached.add(p);
+    }
+
+    /**
+     * The recorded rows removed by the latest deletes.
+     */
+    private List<Position> take() {
+        List<Position> taken = new ArrayList<>(detached);
+        detached.clear();
+        return taken;
+    }
+
+    /**
+     * Put back recorded rows at the rows they had when removed.
+     */
+    private void reattach(List<Position> removed) {
+        for(Position p : removed) {
+            p.row = p.saved;
+            positions.add(p);
+        }
+    }
+
+    private Position track(T entry, int row) {
+        Position p = new Position(entry, row);
+        positions.add(p);
+        return p;
+    }
+
+    @Override
+    public synchronized void endUpdate() {
+        if(updateLevel == 1 && compoundEdit != null && !compoundEdit.isSignificant()) {
+            // nothing changed
+            updateLevel--;
+            compoundEdit.end();
+            compoundEdit = null;
+            return;
+        }
+        super.endUpdate();
+    }
+
+    @Override
+    protected CompoundEdit createCompoundEdit() {
+        return new CompoundEdit() {
+            private static final long serialVersionUID = -5180063434497734218L;
+
+            @Override
+            public boolean canUndo() {
+                return super.canUndo() && edits.stream().allMatch(e -> e.canUndo());
+            }
+
+            @Override
+            public boolean canRedo() {
+                return super.canRedo() && edits.stream().allMatch(e -> e.canRedo());
+            }
+
+            @Override
+            public void undo() {
+                replay(() -> model.batch(m -> super.undo()));
+            }
+
+            @Override
+            public void redo() {
+                replay(() -> model.batch(m -> super.redo()));
+            }
+        };
+    }
+
+    private void replay(Runnable change) {
+        boolean was = replaying;
+        replaying = true;
+        try {
+            change.run();
+        } finally {
+            replaying = was;
+        }
+    }
+
+    /**
+     * @return the first inserted row.
+     */
+    private int insert(int firstRow, List<T> entries) {
+        int first = Math.min(firstRow, model.getRowCount());
+        model.data.addAll(first, entries);
+        model.fireTableRowsInserted(first, first + entries.size() - 1);
+        return first;
+    }
+
+    private void remove(int firstRow, List<T> entries) {
+        int count = entries.size();
+        boolean contiguous = firstRow + count <= model.getRowCount();
+        for(int i = 0; contiguous && i < count; i++) {
+            contiguous = model.getEntry(firstRow + i) == entries.get(i);
+        }
+        if(contiguous) {
+            model.data.subList(firstRow, firstRow + count).clear();
+            model.fireTableChanged(new GenericTableModelEvent<>(model, firstRow, firstRow + count - 1, GenericTableModelEvent.DELETE, entries));
+            return;
+        }
+        // changed without an edit since; remove the entries wherever they are
+        Set<T> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(entries);
+        for(int row = model.getRowCount() - 1; row >= 0; row--) {
+            if(removed.contains(model.getEntry(row))) {
+                model.removeEntryAt(row);
+            }
+        }
+    }
+
+    /**
+     * A recorded row; -1 while removed.
+     */
+    private final class Position {
+        /**
+         * The entry at the row; or null for a row of a rows edit.
+         */
+        private final T entry;
+        private int row;
+        /**
+         * The row when removed.
+         */
+        private int saved;
+
+        Position(T entry, int row) {
+            this.entry = entry;
+            this.row = row;
+        }
+    }
+
+    private final class CellEdit extends AbstractUndoableEdit {
+        private static final long serialVersionUID = 4381713262424066391L;
+
+        private final T entry;
+        private final Position position;
+        private final int columnIndex;
+        private final Object oldValue;
+        private final Object newValue;
+
+        CellEdit(T entry, int rowIndex, int columnIndex, Object oldValue, Object newValue) {
+            this.entry = entry;
+            this.position = track(entry, rowIndex);
+            this.columnIndex = columnIndex;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        @Override
+        public boolean canUndo() {
+            return super.canUndo() && position.row >= 0;
+        }
+
+        @Override
+        public boolean canRedo() {
+            return super.canRedo() && position.row >= 0;
+        }
+
+        @Override
+        public void undo() {
+            super.undo();
+            replay(() -> apply(oldValue));
+        }
+
+        @Override
+        public void redo() {
+            super.redo();
+            replay(() -> apply(newValue));
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            positions.remove(position);
+        }
+
+        private void apply(Object value) {
+            model.applyValue(entry, columnIndex, value);
+            int row = position.row;
+            if(row < model.getRowCount() && model.getEntry(row) == entry) {
+                model.fireTableCellUpdated(row, columnIndex);
+            } else if(model.getRowCount() > 0) {
+                // moved without an edit; repaint the column
+                model.fireTableChanged(new TableModelEvent(model, 0, model.getRowCount() - 1, columnIndex));
+            }
+        }
+
+        @Override
+        public String getPresentationName() {
+            return "Edit " + model.getColumnName(columnIndex);
+        }
+    }
+
+    private final class RowsEdit extends AbstractUndoableEdit {
+        private static final long serialVersionUID = -2412936453618046773L;
+
+        private final Position position;
+        private final List<T> entries;
+        private final boolean inserted;
+        /**
+         * Recorded rows within the entries while they are removed.
+         */
+        private List<Position> removed;
+
+        RowsEdit(int firstRow, List<T> entries, boolean inserted) {
+            this.entries = new ArrayList<>(entries);
+            this.inserted = inserted;
+            this.removed = inserted ? Collections.emptyList() : take();
+            this.position = track(null, firstRow);
+        }
+
+        @Override
+        public boolean canUndo() {
+            return super.canUndo() && position.row >= 0;
+        }
+
+        @Override
+        public boolean canRedo() {
+            return super.canRedo() && position.row >= 0;
+        }
+
+        @Override
+        public void undo() {
+            super.undo();
+            replay(inserted ? this::removeRows : this::insertRows);
+        }
+
+        @Override
+        public void redo() {
+            super.redo();
+            replay(inserted ? this::insertRows : this::removeRows);
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            positions.remove(position);
+            removed = Collections.emptyList();
+        }
+
+        private void removeRows() {
+            int firstRow = position.row;
+            remove(firstRow, entries);
+            removed = take();
+            removed.remove(position);
+            place(firstRow);
+        }
+
+        private void insertRows() {
+            place(insert(position.row, entries));
+            reattach(removed);
+            removed = Collections.emptyList();
+        }
+
+        /**
+         * The rows are inserted at, or were removed from, the row.
+         */
+        private void place(int row) {
+            position.row = row;
+            positions.add(position);
+        }
+
+        @Override
+        public String getPresentationName() {
+            return inserted ? "Add" : "Remove";
+        }
+    }
+
+    private final class ReplaceEdit extends AbstractUndoableEdit {
+        private static final long serialVersionUID = 8526640377424316613L;
+
+        private final List<T> oldEntries;
+        private final List<T> newEntries;
+        private final long evictedAt;
+        /**
+         * Recorded rows of the entries not in the model.
+         */
+        private List<Position> removed;
+
+        ReplaceEdit(List<T> oldEntries, List<T> newEntries) {
+            this.oldEntries = oldEntries;
+            this.newEntries = newEntries;
+            this.evictedAt = evicted;
+            this.removed = take();
+        }
+
+        @Override
+        public boolean canUndo() {
+            // the replaced rows would come back unexpired
+            return super.canUndo() && evicted == evictedAt;
+        }
+
+        @Override
+        public boolean canRedo() {
+            return super.canRedo() && evicted == evictedAt;
+        }
+
+        @Override
+        public void undo() {
+            super.undo();
+            replay(() -> replace(oldEntries));
+        }
+
+        @Override
+        public void redo() {
+            super.redo();
+            replay(() -> replace(newEntries));
+        }
+
+        @Override
+        public void die() {
+            super.die();
+            removed = Collections.emptyList();
+        }
+
+        private void replace(List<T> entries) {
+            model.setEntries(entries);
+            List<Position> replaced = take();
+            reattach(removed);
+            removed = replaced;
+        }
+
+        @Override
+        public String getPresentationName() {
+            return "Replace";
+        }
+    }
+
+    /**
+     * A change too large to keep; nothing before it can be undone.
+     */
+    private static final class Barrier extends AbstractUndoableEdit {
+        private static final long serialVersionUID = -6805395170871352042L;
+
+        private final String name;
+
+        Barrier(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean canUndo() {
+            return false;
+        }
+
+        @Override
+        public boolean canRedo() {
+            return false;
+        }
+
+        @Override
+        public String getPresentationName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.DefaultRowSorter;
+import javax.swing.JTable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedRowFilterTest {
+    private static final class Employee {
+        @OrderedColumn(index=0, name="Name", type = String.class)
+        String name;
+        @OrderedColumn(index=1, name="Age", type = Integer.class)
+        int age;
+    }
+
+    private GenericTableModel<Employee> tableModel;
+    private GenericTableController<Employee> tableController;
+    private final AtomicInteger tests = new AtomicInteger(0);
+
+    private static Employee employee(String name, int age) {
+        Employee e = new Employee();
+        e.name = name;
+        e.age = age;
+        return e;
+    }
+
+    @Before
+    public void before() {
+        tableModel = new GenericTableModel<Employee>() {
+            private static final long serialVersionUID = 3311797452137346218L;
+        };
+        tableController = new GenericTableController<>(new JTable(), tableModel).defaultRowSorter();
+        for(int i = 0; i < 100; i++) {
+            tableController.addEntry(employee("Employee" + i, i));
+        }
+        tests.set(0);
+        tableController.filter(tableController.createCachedFilter(e -> {
+            tests.incrementAndGet();
+            return e.age % 2 == 0;
+        }));
+    }
+
+    @Test
+    public void testInitialFilter() {
+        assertTrue(tests.get() == 100);
+        assertTrue(tableController.rowCount() == 50);
+    }
+
+    @Test
+    public void testRemovedFilterRestoresSortsOnUpdates() {
+        JTable table = new JTable();
+        GenericTableController<Employee> controller = new GenericTableController<>(table, tableModel).defaultRowSorter();
+        DefaultRowSorter<?, ?> sorter = (DefaultRowSorter<?, ?>)table.getRowSorter();
+        controller.filter(controller.createCachedFilter(e -> e.age > 10));
+        controller.filter(controller.createCachedFilter(e -> e.age > 20));
+        assertTrue(sorter.getSortsOnUpdates());
+
+        controller.filter(null);
+        assertTrue(!sorter.getSortsOnUpdates());
+    }
+
+    @Test
+    public void testInsertOnlyTestsNewRows() {
+        tableController.addEntry(employee("New", 200));
+        assertTrue(tests.get() == 101);
+        assertTrue(tableController.rowCount() == 51);
+        assertTrue(tableController.getEntryAt(50).age == 200);
+    }
+
+    @Test
+    public void testUpdateOnlyTestsUpdatedRows() {
+        tableModel.getEntry(1).age = 2;
+        tableModel.fireTableRowsUpdated(1, 1);
+        assertTrue(tests.get() == 101);
+        assertTrue(tableController.rowCount() == 51);
+    }
+
+    @Test
+    public void testDeleteShiftsRemembered() {
+        tableModel.removeEntryAt(0);
+        assertTrue(tableController.rowCount() == 49);
+        assertTrue(tableController.getEntryAt(0).age == 2);
+
+        // the remaining rows keep their results after the shift
+        tableModel.getEntry(0).age = 4;
+        tableModel.fireTableRowsUpdated(0, 0);
+        assertTrue(tests.get() == 101);
+        assertTrue(tableController.rowCount() == 50);
+        assertTrue(tableController.getEntryAt(0).age == 4);
+    }
+
+    @Test
+    public void testDataChangedRetestsAll() {
+        tableController.refresh();
+        assertTrue(tests.get() == 200);
+        assertTrue(tableController.rowCount() == 50);
+    }
+}
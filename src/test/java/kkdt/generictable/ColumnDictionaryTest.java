@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.swing.JTable;
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnDictionaryTest {
+    private static final class Employee {
+        @OrderedColumn(index=0, name="Name", type = String.class)
+        String name;
+        @OrderedColumn(index=1, name="Sex", type = String.class, dictionary = true, editable = true)
+        String sex;
+    }
+
+    private GenericTableModel<Employee> tableModel;
+
+    private static Employee employee(String name, String sex) {
+        Employee e = new Employee();
+        e.name = name;
+        // distinct instances on purpose
+        e.sex = sex == null ? null : new String(sex);
+        return e;
+    }
+
+    @Before
+    public void before() {
+        tableModel = new GenericTableModel<Employee>() {
+            private static final long serialVersionUID = 8032717208117960567L;
+        };
+        tableModel.addEntry(employee("Bob", "M"));
+        tableModel.addEntry(employee("Jane", "F"));
+        tableModel.addEntry(employee("Billy", "M"));
+        tableModel.addEntry(employee("Pat", null));
+    }
+
+    @Test
+    public void testCanonicalValues() {
+        ColumnDictionary dictionary = tableModel.getDictionary(1);
+        assertTrue(tableModel.getDictionary(0) == null);
+        assertTrue(dictionary.size() == 3);
+        assertTrue(tableModel.getValueAt(0, 1) == tableModel.getValueAt(2, 1));
+        assertTrue(tableModel.getEntry(0).sex == tableModel.getEntry(2).sex);
+        assertTrue(tableModel.getValueAt(3, 1) == null);
+        assertTrue(dictionary.getRowCode(0) == dictionary.getRowCode(2));
+        assertTrue(dictionary.getRowCode(3) == 0);
+        assertTrue(dictionary.getCode("X") == -1);
+    }
+
+    @Test
+    public void testRowCodesFollowChanges() {
+        ColumnDictionary dictionary = tableModel.getDictionary(1);
+        tableModel.removeEntryAt(0);
+        assertTrue(dictionary.getRowCode(0) == dictionary.getCode("F"));
+        assertTrue(tableModel.getValueAt(1, 1).equals("M"));
+
+        tableModel.setValueAt("F", 1, 1);
+        assertTrue(tableModel.getValueAt(1, 1) == tableModel.getValueAt(0, 1));
+
+        tableModel.getEntry(2).sex = "X";
+        tableModel.fireTableRowsUpdated(2, 2);
+        assertTrue(tableModel.getValueAt(2, 1).equals("X"));
+        assertTrue(dictionary.size() == 4);
+    }
+
+    @Test
+    public void testCompareCodes() {
+        ColumnDictionary dictionary = tableModel.getDictionary(1);
+        assertTrue(dictionary.compare(dictionary.getCode("F"), dictionary.getCode("M")) < 0);
+        assertTrue(dictionary.compare(0, dictionary.getCode("F")) < 0);
+        assertTrue(dictionary.comparator().compare("M", "F") > 0);
+        // values not in the dictionary
+        assertTrue(dictionary.comparator().compare("A", "F") < 0);
+        assertTrue(dictionary.comparator().compare("M", "Z") < 0);
+        assertTrue(dictionary.comparator().compare(null, "A") < 0);
+    }
+
+    @Test
+    public void testSortAndFilter() {
+        GenericTableController<Employee> tableController = new GenericTableController<>(new JTable(), tableModel).defaultRowSorter();
+        tableController.filter(tableController.createDictionaryFilter(1, "M", "X"));
+        assertTrue(tableController.rowCount() == 2);
+
+        // values added after the filter was created
+        tableController.addEntry(employee("Sam", "X"));
+        assertTrue(tableController.rowCount() == 3);
+
+        tableController.filter(null);
+        JTable table = new JTable();
+        tableController = new GenericTableController<>(table, tableModel).defaultRowSorter();
+        table.getRowSorter().setSortKeys(Arrays.asList(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+        assertTrue(tableController.getEntryAt(0).sex == null);
+        assertTrue(tableController.getEntryAt(1).sex.equals("F"));
+        assertTrue(tableController.getEntryAt(4).sex.equals("X"));
+
+        // filters see the values, not the codes the sorter compares
+        tableController.filter(RowFilter.regexFilter("^F$", 1));
+        assertTrue(tableController.rowCount() == 1);
+        assertTrue(tableController.getEntryAt(0).name.equals("Jane"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFilterNotDictionary() {
+        new GenericTableController<>(new JTable(), tableModel).createDictionaryFilter(0, "Bob");
+    }
+}
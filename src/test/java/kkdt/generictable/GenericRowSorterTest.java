@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import javax.swing.JTable;
+import javax.swing.RowSorter.SortKey;
+import javax.swing.SortOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GenericRowSorterTest {
+    private static final class Trade {
+        @OrderedColumn(index=0, name="Symbol", type = String.class)
+        String symbol;
+        @OrderedColumn(index=1, name="Quantity", type = int.class, editable = true)
+        int quantity;
+        @OrderedColumn(index=2, name="Price", type = Double.class, editable = true)
+        Double price;
+        @OrderedColumn(index=3, name="Venue", type = String.class, dictionary = true)
+        String venue;
+    }
+
+    private GenericTableModel<Trade> tradeModel;
+    private GenericRowSorter<Trade> sorter;
+
+    private static Trade trade(String symbol, int quantity, Double price, String venue) {
+        Trade t = new Trade();
+        t.symbol = symbol;
+        t.quantity = quantity;
+        t.price = price;
+        t.venue = venue;
+        return t;
+    }
+
+    private String view() {
+        StringBuilder symbols = new StringBuilder();
+        for(int i = 0; i < sorter.getViewRowCount(); i++) {
+            symbols.append(tradeModel.getEntry(sorter.convertRowIndexToModel(i)).symbol);
+        }
+        return symbols.toString();
+    }
+
+    @Before
+    public void before() {
+        tradeModel = new GenericTableModel<Trade>() {
+            private static final long serialVersionUID = -1964370300961785563L;
+        };
+        tradeModel.addEntry(trade("a", 3, 1.5, "X"));
+        tradeModel.addEntry(trade("b", 1, null, "Y"));
+        tradeModel.addEntry(trade("c", 3, 0.5, "X"));
+        tradeModel.addEntry(trade("d", 2, 2.5, null));
+        JTable table = new JTable(tradeModel);
+        sorter = new GenericRowSorter<>(tradeModel);
+        table.setRowSorter(sorter);
+    }
+
+    @Test
+    public void testSortByType() {
+        sorter.setSortKeys(Arrays.asList(new SortKey(1, SortOrder.ASCENDING)));
+        assertTrue(view().equals("bdac"));
+        sorter.setSortKeys(Arrays.asList(new SortKey(2, SortOrder.ASCENDING)));
+        assertTrue(view().equals("bcad"));
+        sorter.setSortKeys(Arrays.asList(new SortKey(3, SortOrder.DESCENDING)));
+        assertTrue(view().equals("bacd"));
+        sorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.DESCENDING)));
+        assertTrue(view().equals("dcba"));
+        assertTrue(sorter.convertRowIndexToView(0) == 3);
+        sorter.setSortKeys(null);
+        assertTrue(view().equals("abcd"));
+    }
+
+    @Test
+    public void testMultipleColumnsAreStable() {
+        sorter.setSortKeys(Arrays.asList(new SortKey(1, SortOrder.DESCENDING)));
+        // equal quantities keep model order
+        assertTrue(view().equals("acdb"));
+        sorter.setSortKeys(Arrays.asList(new SortKey(1, SortOrder.DESCENDING), new SortKey(2, SortOrder.ASCENDING)));
+        assertTrue(view().equals("cadb"));
+
+        sorter.toggleSortOrder(2);
+        assertTrue(sorter.getSortKeys().get(0).getColumn() == 2);
+        sorter.toggleSortOrder(2);
+        assertTrue(sorter.getSortKeys().get(0).getSortOrder() == SortOrder.DESCENDING);
+        assertTrue(view().equals("dacb"));
+    }
+
+    @Test
+    public void testModelChanges() {
+        sorter.setSortKeys(Arrays.asList(new SortKey(1, SortOrder.ASCENDING)));
+        tradeModel.addEntry(trade("e", 0, 1.0, "Y"));
+        assertTrue(view().equals("ebdac"));
+        tradeModel.removeEntryAt(1);
+        assertTrue(view().equals("edac"));
+
+        // updates are re-sorted only when asked to
+        tradeModel.setValueAt(9, 0, 1);
+        assertTrue(view().equals("edac"));
+        sorter.setSortsOnUpdates(true);
+        tradeModel.setValueAt(1, 1, 1);
+        assertTrue(view().equals("ecda"));
+
+        tradeModel.setEntries(Arrays.asList(trade("z", 2, 0.0, "X"), trade("y", 1, 0.0, "X")));
+        assertTrue(view().equals("yz"));
+    }
+
+    @Test
+    public void testIncrementalChanges() {
+        sorter.setRowFilter(new GenericTableController<>(new JTable(), tradeModel).createFilter(t -> t.quantity != 4));
+        sorter.setSortKeys(Arrays.asList(new SortKey(1, SortOrder.DESCENDING), new SortKey(2, SortOrder.ASCENDING)));
+        Random random = new Random(7);
+        for(int i = 0; i < 40; i++) {
+            tradeModel.addEntry(trade("x", random.nextInt(6), random.nextInt(3) * 1.0, "X"));
+        }
+        for(int i = 0; i < 200; i++) {
+            if(random.nextBoolean()) {
+                int row = random.nextInt(tradeModel.size() + 1);
+                tradeModel.data.add(row, trade("n" + i, random.nextInt(6), random.nextInt(3) * 1.0, "Y"));
+                tradeModel.fireTableRowsInserted(row, row);
+            } else {
+                tradeModel.removeEntryAt(random.nextInt(tradeModel.size()));
+            }
+            int[] view = new int[sorter.getViewRowCount()];
+            Arrays.setAll(view, sorter::convertRowIndexToModel);
+            sorter.sort();
+            int[] sorted = new int[sorter.getViewRowCount()];
+            Arrays.setAll(sorted, sorter::convertRowIndexToModel);
+            assertTrue(Arrays.equals(view, sorted));
+            for(int v = 0; v < view.length; v++) {
+                assertTrue(sorter.convertRowIndexToView(view[v]) == v);
+            }
+        }
+    }
+
+    @Test
+    public void testFilterAndComparator() {
+        sorter.setRowFilter(new GenericTableController<>(new JTable(), tradeModel).createFilter(t -> t.quantity > 1));
+        assertTrue(view().equals("acd"));
+        assertTrue(sorter.convertRowIndexToView(1) == -1);
+        sorter.setComparator(0, Comparator.reverseOrder());
+        sorter.setSortKeys(Arrays.asList(new SortKey(0, SortOrder.ASCENDING)));
+        assertTrue(view().equals("dca"));
+    }
+
+    @Test
+    public void testControllerFilter() {
+        JTable table = new JTable();
+        GenericTableController<Trade> controller = new GenericTableController<>(table, tradeModel).genericRowSorter();
+        assertTrue(table.getRowSorter() instanceof GenericRowSorter);
+        controller.filter(controller.createCachedFilter(t -> t.quantity == 3));
+        assertTrue(controller.rowCount() == 2);
+        assertTrue(controller.getEntryAt(1).symbol.equals("c"));
+    }
+}
@@ -7,11 +7,16 @@ package kkdt.generictable;
 
 import static org.junit.Assert.assertTrue;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.JTable;
 import javax.swing.RowFilter;
+import javax.swing.SwingUtilities;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
@@ -255,4 +260,196 @@ public class GenericTableControllerTest {
         tableController.addEntry(new Employee());
         tableController.getEntryAt(1);
     }
+    
+    @Test
+    public void testAsyncColumnNotSortable() {
+        GenericTableModel<Employee> asyncModel = new GenericTableModel<Employee>() {
+            private static final long serialVersionUID = 4906734128894744542L;
+        };
+        asyncModel.columnAsync(3, e -> e.sex, "");
+        JTable table = new JTable();
+        new GenericTableController<>(table, asyncModel).defaultRowSorter();
+        TableRowSorter<?> sorter = (TableRowSorter<?>)table.getRowSorter();
+        assertTrue(!sorter.isSortable(3));
+        assertTrue(sorter.isSortable(2));
+    }
+    
+    private static final class Wide {
+        @OrderedColumn(index=0, name="Id", type = Integer.class)
+        int id;
+        @OrderedColumn(index=1, name="Note", type = String.class, hidden = true)
+        String note;
+        @OrderedColumn(index=2, name="Score", type = Integer.class, width = 80)
+        int score;
+    }
+    
+    @Test
+    public void testColumnVisibility() {
+        GenericTableModel<Wide> wideModel = new GenericTableModel<Wide>() {
+            private static final long serialVersionUID = -1709224870418221633L;
+        };
+        Wide w = new Wide();
+        w.id = 1;
+        w.note = "a";
+        w.score = 5;
+        wideModel.addEntry(w);
+        JTable table = new JTable();
+        GenericTableController<Wide> controller = new GenericTableController<>(table, wideModel).defaultRowSorter();
+        
+        // hidden columns have no table column and are not captured
+        assertTrue(table.getColumnCount() == 2);
+        assertTrue(!controller.isColumnVisible(1) && wideModel.isColumnHidden(1));
+        assertTrue(wideModel.snapshot().getValueAt(0, 1) == null);
+        assertTrue(wideModel.snapshot().getValueAt(0, 2).equals(5));
+        
+        controller.setColumnVisible(1, true);
+        assertTrue(table.getColumnCount() == 3);
+        assertTrue(table.getColumnModel().getColumn(1).getModelIndex() == 1);
+        assertTrue("Note".equals(table.getColumnModel().getColumn(1).getHeaderValue()));
+        assertTrue(wideModel.snapshot().getValueAt(0, 1).equals("a"));
+        
+        // hidden columns keep their width and stop sorting
+        table.getColumnModel().getColumn(2).setPreferredWidth(120);
+        table.getRowSorter().toggleSortOrder(2);
+        controller.setColumnVisible(2, false);
+        assertTrue(table.getColumnCount() == 2 && !controller.isColumnVisible(2));
+        assertTrue(table.getRowSorter().getSortKeys().isEmpty());
+        controller.setColumnVisible(2, true);
+        assertTrue(table.getColumnModel().getColumn(2).getModelIndex() == 2);
+        assertTrue(table.getColumnModel().getColumn(2).getPreferredWidth() == 120);
+        
+        // table structure changes do not bring hidden columns back
+        controller.setColumnVisible(0, false);
+        wideModel.fireTableStructureChanged();
+        assertTrue(table.getColumnCount() == 2);
+    }
+    
+    @Test
+    public void testStructureChangeRebuildsColumns() {
+        String[] noteName = { "Note" };
+        GenericTableModel<Wide> wideModel = new GenericTableModel<Wide>() {
+            private static final long serialVersionUID = 4410286532937716734L;
+            
+            @Override
+            public String getColumnName(int column) {
+                return column == 1 ? noteName[0] : super.getColumnName(column);
+            }
+        };
+        JTable table = new JTable();
+        GenericTableController<Wide> controller = new GenericTableController<>(table, wideModel);
+        controller.setColumnVisible(1, true);
+        table.removeColumn(table.getColumnModel().getColumn(0));
+        assertTrue(table.getColumnCount() == 2);
+        
+        noteName[0] = "Remark";
+        wideModel.fireTableStructureChanged();
+        assertTrue(table.getColumnCount() == 3);
+        assertTrue(table.getColumnModel().getColumn(0).getModelIndex() == 0);
+        assertTrue("Remark".equals(table.getColumnModel().getColumn(1).getHeaderValue()));
+    }
+    
+    private static Employee employee(String firstName, int age) {
+        Employee e = new Employee();
+        e.firstName = firstName;
+        e.age = age;
+        return e;
+    }
+    
+    private static List<Employee> selectedInTable(GenericTableController<Employee> controller, JTable table) {
+        List<Employee> entries = new ArrayList<>();
+        for(int row : table.getSelectedRows()) {
+            entries.add(controller.getEntryAt(row));
+        }
+        return entries;
+    }
+    
+    /**
+     * Run on the EDT, as Swing requires, rethrowing assertion failures.
+     */
+    private static void onEdt(Runnable task) throws Throwable {
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    
+    @Test
+    public void testTrackSelection() throws Throwable {
+        GenericTableModel<Employee> selectionModel = new GenericTableModel<Employee>() {
+            private static final long serialVersionUID = 1922645309946745075L;
+        };
+        List<Employee> employees = new ArrayList<>();
+        for(int i = 5; i > 0; i--) {
+            employees.add(employee("e" + i, i * 10));
+        }
+        Employee e1 = employees.get(4);
+        Employee e2 = employees.get(3);
+        Employee e3 = employees.get(2);
+        JTable table = new JTable();
+        List<GenericTableController<Employee>> controllers = new ArrayList<>();
+        onEdt(() -> {
+            selectionModel.addEntries(employees);
+            controllers.add(new GenericTableController<>(table, selectionModel)
+                .defaultRowSorter()
+                .trackSelection());
+        });
+        GenericTableController<Employee> controller = controllers.get(0);
+        
+        // selecting in the same task as a sort
+        onEdt(() -> {
+            table.getRowSorter().toggleSortOrder(2);
+            table.setRowSelectionInterval(0, 1);
+            assertTrue(controller.getSelectedEntries().size() == 2);
+        });
+        onEdt(() -> {
+            assertTrue(controller.getSelectedEntries().size() == 2);
+            assertTrue(controller.getSelectedEntries().containsAll(Arrays.asList(e1, e2)));
+            assertTrue(selectedInTable(controller, table).containsAll(Arrays.asList(e1, e2)));
+        });
+        
+        // an insert sorted before the selection, and selecting in the same task
+        onEdt(() -> {
+            selectionModel.addEntry(employee("e0", 5));
+            assertTrue(selectedInTable(controller, table).containsAll(Arrays.asList(e1, e2)));
+            table.addRowSelectionInterval(3, 3);
+        });
+        onEdt(() -> {
+            assertTrue(controller.getSelectedEntries().size() == 3);
+            assertTrue(controller.getSelectedEntries().containsAll(Arrays.asList(e1, e2, e3)));
+            assertTrue(selectedInTable(controller, table).containsAll(Arrays.asList(e1, e2, e3)));
+        });
+        
+        // removing selected entries
+        onEdt(() -> {
+            table.setRowSelectionInterval(1, 2);
+            selectionModel.removeEntryAt(3);
+            assertTrue(controller.getSelectedEntries().equals(Arrays.asList(e1)));
+            assertTrue(selectedInTable(controller, table).equals(Arrays.asList(e1)));
+        });
+        
+        // filtered out entries stay selected
+        onEdt(() -> controller.filter(controller.createFilter(e -> e.age > 10)));
+        onEdt(() -> {
+            assertTrue(table.getSelectedRowCount() == 0);
+            assertTrue(controller.getSelectedEntries().equals(Arrays.asList(e1)));
+            controller.filter(null);
+        });
+        onEdt(() -> {
+            assertTrue(selectedInTable(controller, table).equals(Arrays.asList(e1)));
+        });
+        
+        // replaced entries selected by key
+        onEdt(() -> {
+            controller.trackSelection(e -> e.firstName);
+            List<Employee> copies = new ArrayList<>();
+            for(int row = 0; row < selectionModel.size(); row++) {
+                copies.add(employee(selectionModel.getEntry(row).firstName, selectionModel.getEntry(row).age));
+            }
+            selectionModel.setEntries(copies);
+            assertTrue(controller.getSelectedEntries().size() == 1);
+            assertTrue(controller.getSelectedEntries().get(0) != e1 && controller.getSelectedEntries().get(0).firstName.equals("e1"));
+            assertTrue(selectedInTable(controller, table).equals(controller.getSelectedEntries()));
+        });
+    }
 }
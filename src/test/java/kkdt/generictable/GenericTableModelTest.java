@@ -7,6 +7,24 @@ package kkdt.generictable;
 
 import static org.junit.Assert.assertTrue;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.undo.UndoManager;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -88,6 +106,41 @@ public class GenericTableModelTest {
     }
 
     
+    private static final class Issuer {
+        String name;
+    }
+    
+    private static class Instrument {
+        String symbol;
+        Issuer issuer;
+    }
+    
+    private static final class Option extends Instrument {
+        double strike;
+    }
+    
+    @SuppressWarnings("unused")
+    private static final class Order {
+        @OrderedColumn(index=0, name="Symbol", type = String.class, path = "symbol", editable = true)
+        Instrument instrument;
+        @OrderedColumn(index=1, name="Issuer", type = String.class, path = "issuer.name")
+        Instrument issued;
+        @OrderedColumn(index=2, name="Quantity", type = Integer.class)
+        int quantity;
+    }
+    
+    @SuppressWarnings("unused")
+    private static final class Position {
+        @OrderedColumn(index=0, name="Quantity", type = Integer.class, editable = true)
+        int quantity;
+        @OrderedColumn(index=1, name="Price", type = Double.class, editable = true)
+        double price;
+        @OrderedColumn(index=2, name="Value", type = Double.class)
+        Double value;
+        @OrderedColumn(index=3, name="Label", type = String.class)
+        String label;
+    }
+    
     class AnimalTableModel extends GenericTableModel<Animal> {
         private static final long serialVersionUID = -5299726962275205603L;
     };
@@ -213,6 +266,745 @@ public class GenericTableModelTest {
         assertTrue(animalModel.size() == 0);
     }
     
+    @Test
+    public void testAddEntries() {
+        int[] events = new int[1];
+        TableModelListener listener = e -> {
+            assertTrue(e.getType() == TableModelEvent.INSERT);
+            assertTrue(e.getFirstRow() == 0 && e.getLastRow() == 1);
+            events[0]++;
+        };
+        animalModel.addTableModelListener(listener);
+        animalModel.addEntries(Arrays.asList(new Animal(), new Animal()));
+        animalModel.addEntries(Collections.emptyList());
+        animalModel.removeTableModelListener(listener);
+        assertTrue(events[0] == 1);
+        assertTrue(animalModel.size() == 2);
+    }
+    
+    @Test
+    public void testPathColumns() {
+        GenericTableModel<Order> orderModel = new GenericTableModel<Order>() {
+            private static final long serialVersionUID = 2283016530357398185L;
+        };
+        Instrument instrument = new Option();
+        instrument.symbol = "IBM";
+        instrument.issuer = new Issuer();
+        instrument.issuer.name = "International Business Machines";
+        Order order = new Order();
+        order.instrument = instrument;
+        order.issued = instrument;
+        orderModel.addEntry(order);
+        orderModel.addEntry(new Order());
+        
+        assertTrue(orderModel.getColumnCount() == 3);
+        assertTrue(orderModel.getValueAt(0, 0).equals("IBM"));
+        assertTrue(orderModel.getValueAt(0, 1).equals("International Business Machines"));
+        assertTrue(orderModel.getValueAt(1, 0) == null);
+        assertTrue(orderModel.getValueAt(1, 1) == null);
+        
+        orderModel.setValueAt("MSFT", 0, 0);
+        assertTrue(instrument.symbol.equals("MSFT"));
+        // null along the path is a no-op
+        orderModel.setValueAt("MSFT", 1, 0);
+        assertTrue(orderModel.getEntry(1).instrument == null);
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    @SuppressWarnings("unused")
+    public void testInvalidPath() {
+        class Broken {
+            @OrderedColumn(index=0, name="A", type = String.class, path = "missing")
+            Instrument a;
+        }
+        new GenericTableModel<Broken>() {
+            private static final long serialVersionUID = -7420624432898425961L;
+        };
+    }
+    
+    @Test
+    public void testDerivedColumns() {
+        GenericTableModel<Position> positionModel = new GenericTableModel<Position>() {
+            private static final long serialVersionUID = 4461574302963806359L;
+        };
+        AtomicInteger computed = new AtomicInteger();
+        positionModel.columnDerive(2, p -> {
+            computed.incrementAndGet();
+            return p.quantity * p.price;
+        }, 0, 1);
+        positionModel.columnDerive(3, p -> p.quantity + "@" + p.price, 0, 1, 2);
+        
+        Position p1 = new Position();
+        p1.quantity = 10;
+        p1.price = 2;
+        Position p2 = new Position();
+        p2.quantity = 1;
+        p2.price = 1;
+        positionModel.addEntry(p1);
+        positionModel.addEntry(p2);
+        
+        assertTrue(positionModel.getValueAt(0, 2).equals(20.0));
+        assertTrue(positionModel.getValueAt(0, 2).equals(20.0));
+        assertTrue(computed.get() == 1);
+        
+        List<Integer> updatedColumns = new ArrayList<>();
+        TableModelListener listener = e -> updatedColumns.add(e.getColumn());
+        positionModel.addTableModelListener(listener);
+        positionModel.setValueAt(5, 0, 0);
+        positionModel.removeTableModelListener(listener);
+        // source cell, derived cell, then the column derived from the derived cell
+        assertTrue(updatedColumns.equals(Arrays.asList(0, 2, 3)));
+        assertTrue(positionModel.getValueAt(0, 2).equals(10.0));
+        assertTrue(computed.get() == 2);
+        
+        // entry updates recompute; deletes shift the cache
+        p2.price = 3;
+        positionModel.fireTableRowsUpdated(1, 1);
+        positionModel.removeEntryAt(0);
+        assertTrue(positionModel.getValueAt(0, 2).equals(3.0));
+        assertTrue(positionModel.getValueAt(0, 3).equals("1@3.0"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testDerivedColumnCycle() {
+        GenericTableModel<Position> positionModel = new GenericTableModel<Position>() {
+            private static final long serialVersionUID = 1178433606223946178L;
+        };
+        positionModel.columnDerive(2, p -> null, 3);
+        positionModel.columnDerive(3, p -> null, 2);
+    }
+    
+    private static final class Alert {
+        @OrderedColumn(index=0, name="Message", type = String.class)
+        String message;
+        @OrderedColumn(index=1, name="Raised", type = Instant.class)
+        Instant raised;
+    }
+    
+    private static final class ManualClock extends Clock {
+        private volatile Instant now = Instant.ofEpochMilli(0);
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+    
+    private static Alert alert(String message, long raised) {
+        Alert a = new Alert();
+        a.message = message;
+        a.raised = Instant.ofEpochMilli(raised);
+        return a;
+    }
+    
+    @Test
+    public void testTimeWindow() {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = 6640851526209312473L;
+        };
+        ManualClock clock = new ManualClock();
+        alertModel.addEntry(alert("expired", -120_000));
+        alertModel.addEntry(alert("a", 0));
+        alertModel.addEntry(alert("b", 1000));
+        alertModel.addEntry(alert("c", 2000));
+        List<TableModelEvent> events = new ArrayList<>();
+        alertModel.addTableModelListener(events::add);
+        
+        alertModel.timeWindow(1, Duration.ofMinutes(1), clock);
+        assertTrue(alertModel.size() == 3);
+        assertTrue(events.size() == 1);
+        
+        // nothing due yet
+        clock.now = Instant.ofEpochMilli(59_999);
+        assertTrue(alertModel.evictExpired() == 0);
+        
+        // expired rows leave as one delete
+        events.clear();
+        clock.now = Instant.ofEpochMilli(61_000);
+        assertTrue(alertModel.evictExpired() == 2);
+        assertTrue(alertModel.size() == 1);
+        assertTrue(alertModel.getEntry(0).message.equals("c"));
+        assertTrue(events.size() == 1);
+        TableModelEvent e = events.get(0);
+        assertTrue(e.getType() == TableModelEvent.DELETE && e.getFirstRow() == 0 && e.getLastRow() == 1);
+        List<?> removed = ((GenericTableModelEvent<?>)e).getEntries();
+        assertTrue(removed.size() == 2 && ((Alert)removed.get(0)).message.equals("a"));
+        
+        alertModel.clearTimeWindow();
+        clock.now = Instant.ofEpochMilli(1_000_000);
+        assertTrue(alertModel.evictExpired() == 0);
+    }
+    
+    @Test
+    public void testTimeWindowTimer() throws Exception {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = -5396155813834541744L;
+        };
+        alertModel.timeWindow(1, Duration.ofMillis(50));
+        alertModel.addEntry(alert("a", System.currentTimeMillis()));
+        for(int i = 0; i < 100 && alertModel.size() > 0; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(alertModel.size() == 0);
+        alertModel.clearTimeWindow();
+    }
+    
+    @Test
+    public void testTimeWindowTimerClock() throws Exception {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = 2718730262207431940L;
+        };
+        ManualClock clock = new ManualClock();
+        alertModel.timeWindow(1, Duration.ofMillis(50), clock);
+        alertModel.addEntry(alert("a", 0));
+        // due by the system clock, not by the window clock
+        Thread.sleep(200);
+        assertTrue(alertModel.size() == 1);
+        
+        // a window clock moved ahead is noticed on the next change
+        alertModel.clearTimeWindow();
+        alertModel.timeWindow(1, Duration.ofMinutes(10), clock);
+        clock.now = Instant.ofEpochMilli(Duration.ofMinutes(10).toMillis());
+        Thread.sleep(100);
+        assertTrue(alertModel.size() == 1);
+        alertModel.addEntry(alert("b", clock.now.toEpochMilli()));
+        for(int i = 0; i < 50 && alertModel.size() > 1; i++) {
+            Thread.sleep(20);
+        }
+        assertTrue(alertModel.size() == 1 && alertModel.getEntry(0).message.equals("b"));
+        alertModel.clearTimeWindow();
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimeWindowColumnType() {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = 3389475140526717011L;
+        };
+        alertModel.timeWindow(0, Duration.ofMinutes(1));
+    }
+    
+    @Test
+    public void testAsyncColumn() throws Exception {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = -1772436413711254006L;
+        };
+        AtomicInteger loads = new AtomicInteger();
+        alertModel.columnAsync(0, a -> {
+            loads.incrementAndGet();
+            return a.message.toUpperCase();
+        }, "...", 2);
+        alertModel.addEntry(alert("a", 0));
+        alertModel.addEntry(alert("b", 0));
+        alertModel.addEntry(alert("c", 0));
+        assertTrue(alertModel.isAsync(0));
+        assertTrue(!alertModel.isAsync(1));
+        
+        // only rendering loads
+        assertTrue(alertModel.getColumnValue(alertModel.getEntry(0), 0).equals("..."));
+        assertTrue(alertModel.snapshot().getValueAt(1, 0).equals("..."));
+        assertTrue(loads.get() == 0);
+        
+        CountDownLatch updated = new CountDownLatch(2);
+        List<TableModelEvent> events = Collections.synchronizedList(new ArrayList<>());
+        alertModel.addTableModelListener(e -> {
+            events.add(e);
+            updated.countDown();
+        });
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(alertModel.getValueAt(0, 0).equals("..."));
+            assertTrue(alertModel.getValueAt(0, 0).equals("..."));
+            assertTrue(alertModel.getValueAt(2, 0).equals("..."));
+        });
+        assertTrue(updated.await(5, TimeUnit.SECONDS));
+        assertTrue(loads.get() == 2);
+        assertTrue(events.stream().allMatch(e -> e.getColumn() == 0 && e.getFirstRow() == e.getLastRow()));
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(alertModel.getValueAt(0, 0).equals("A"));
+            assertTrue(alertModel.getValueAt(2, 0).equals("C"));
+            assertTrue(alertModel.getColumnValue(alertModel.getEntry(2), 0).equals("C"));
+            assertTrue(alertModel.getColumnValue(alertModel.getEntry(1), 0).equals("..."));
+        });
+        assertTrue(loads.get() == 2);
+    }
+    
+    @Test
+    public void testAsyncColumnRowsMove() throws Exception {
+        GenericTableModel<Alert> alertModel = alerts(3, new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        alertModel.columnAsync(0, a -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return a.message.toUpperCase();
+        }, "...", 10);
+        CountDownLatch updated = new CountDownLatch(1);
+        List<TableModelEvent> events = Collections.synchronizedList(new ArrayList<>());
+        alertModel.addTableModelListener(e -> {
+            if(e.getType() == TableModelEvent.UPDATE && e.getColumn() == 0) {
+                events.add(e);
+                updated.countDown();
+            }
+        });
+        Alert last = alertModel.getEntry(2);
+        SwingUtilities.invokeAndWait(() -> {
+            assertTrue(alertModel.getValueAt(2, 0).equals("..."));
+            // the loading entry moves up while its value loads
+            alertModel.removeEntryAt(0);
+            release.countDown();
+        });
+        assertTrue(updated.await(5, TimeUnit.SECONDS));
+        assertTrue(events.size() == 1 && events.get(0).getFirstRow() == 1 && events.get(0).getLastRow() == 1);
+        assertTrue(alertModel.getColumnValue(last, 0).equals(last.message.toUpperCase()));
+    }
+    
+    @Test
+    public void testAsyncColumnPendingBound() throws Exception {
+        GenericTableModel<Alert> alertModel = alerts(4, new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        alertModel.columnAsync(0, a -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return a.message.toUpperCase();
+        }, "...", 2);
+        CountDownLatch updated = new CountDownLatch(1);
+        List<TableModelEvent> events = Collections.synchronizedList(new ArrayList<>());
+        alertModel.addTableModelListener(e -> {
+            if(e.getType() == TableModelEvent.UPDATE && e.getColumn() == 0) {
+                events.add(e);
+                updated.countDown();
+            }
+        });
+        Alert first = alertModel.getEntry(0);
+        Alert second = alertModel.getEntry(1);
+        SwingUtilities.invokeAndWait(() -> {
+            // a read of every row keeps the loads of the last rows read
+            for(int row = 0; row < alertModel.size(); row++) {
+                alertModel.getValueAt(row, 0);
+            }
+            // the load of a removed row is cancelled
+            alertModel.removeEntryAt(3);
+        });
+        release.countDown();
+        assertTrue(updated.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        SwingUtilities.invokeAndWait(() -> {});
+        assertTrue(events.size() == 1 && events.get(0).getFirstRow() == 2);
+        assertTrue(alertModel.getColumnValue(first, 0).equals("..."));
+        assertTrue(alertModel.getColumnValue(second, 0).equals("..."));
+    }
+    
+    private GenericTableModel<Alert> alerts(int count, List<TableModelEvent> events) {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = 8203906460385934131L;
+        };
+        for(int i = 0; i < count; i++) {
+            alertModel.addEntry(alert("m" + i, i));
+        }
+        alertModel.addTableModelListener(events::add);
+        return alertModel;
+    }
+    
+    @Test
+    public void testBatchMergesEvents() {
+        List<TableModelEvent> events = new ArrayList<>();
+        GenericTableModel<Alert> alertModel = alerts(10, events);
+        alertModel.batch(m -> {
+            m.fireTableCellUpdated(2, 0);
+            m.fireTableCellUpdated(3, 0);
+            m.fireTableCellUpdated(7, 0);
+            m.addEntry(alert("x", 0));
+            m.addEntry(alert("y", 0));
+            m.fireTableCellUpdated(10, 0);
+            // nested batch
+            m.batch(n -> n.addEntry(alert("z", 0)));
+            assertTrue(events.isEmpty());
+        });
+        assertTrue(events.size() == 3);
+        TableModelEvent e = events.get(0);
+        assertTrue(e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == 2 && e.getLastRow() == 3 && e.getColumn() == 0);
+        e = events.get(1);
+        assertTrue(e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == 7 && e.getLastRow() == 7);
+        e = events.get(2);
+        assertTrue(e.getType() == TableModelEvent.INSERT && e.getFirstRow() == 10 && e.getLastRow() == 12);
+        
+        // each updated column keeps its own event
+        events.clear();
+        alertModel.batch(m -> {
+            m.fireTableCellUpdated(1, 0);
+            m.fireTableCellUpdated(1, 1);
+            m.fireTableRowsUpdated(4, 4);
+            m.fireTableCellUpdated(4, 1);
+        });
+        assertTrue(events.size() == 3);
+        e = events.get(0);
+        assertTrue(e.getFirstRow() == 4 && e.getLastRow() == 4 && e.getColumn() == TableModelEvent.ALL_COLUMNS);
+        assertTrue(events.get(1).getFirstRow() == 1 && events.get(1).getColumn() == 0);
+        assertTrue(events.get(2).getFirstRow() == 1 && events.get(2).getColumn() == 1);
+        
+        // adjacent and overlapping removals merge; updated rows shift
+        events.clear();
+        List<Alert> removed = new ArrayList<>();
+        for(int row : new int[] {2, 3, 4, 5, 9}) {
+            removed.add(alertModel.getEntry(row));
+        }
+        alertModel.batch(m -> {
+            m.fireTableCellUpdated(8, 0);
+            m.fireTableCellUpdated(3, 0);
+            m.removeEntryAt(3);
+            m.removeEntryAt(8);
+            m.removeEntryAt(2);
+            m.removeEntryAt(2);
+            m.removeEntryAt(2);
+        });
+        assertTrue(alertModel.size() == 8);
+        assertTrue(events.size() == 3);
+        e = events.get(0);
+        assertTrue(e.getType() == TableModelEvent.DELETE && e.getFirstRow() == 9 && e.getLastRow() == 9);
+        assertTrue(((GenericTableModelEvent<?>)e).getEntries().equals(removed.subList(4, 5)));
+        e = events.get(1);
+        assertTrue(e.getType() == TableModelEvent.DELETE && e.getFirstRow() == 2 && e.getLastRow() == 5);
+        assertTrue(((GenericTableModelEvent<?>)e).getEntries().equals(removed.subList(0, 4)));
+        e = events.get(2);
+        assertTrue(e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == 4 && e.getLastRow() == 4 && e.getColumn() == 0);
+        
+        // inserts before the end collapse into a data change
+        events.clear();
+        alertModel.batch(m -> {
+            m.fireTableCellUpdated(1, 0);
+            m.data.add(0, alert("v", 0));
+            m.fireTableRowsInserted(0, 0);
+        });
+        assertTrue(events.size() == 1);
+        assertTrue(events.get(0).getFirstRow() == 0 && events.get(0).getLastRow() == Integer.MAX_VALUE);
+        assertTrue(alertModel.size() == 9);
+        
+        // appended rows removed again leave nothing to fire
+        events.clear();
+        alertModel.batch(m -> {
+            m.addEntry(alert("w", 0));
+            m.removeEntryAt(9);
+        });
+        assertTrue(events.isEmpty());
+    }
+    
+    @Test
+    public void testBatchKeepsModelState() {
+        List<TableModelEvent> events = new ArrayList<>();
+        GenericTableModel<Alert> alertModel = alerts(3, events);
+        alertModel.columnDerive(0, a -> a.raised.toString(), 1);
+        TableSnapshot<Alert> s1 = alertModel.snapshot();
+        alertModel.batch(m -> {
+            m.getEntry(1).raised = Instant.ofEpochMilli(99);
+            m.fireTableCellUpdated(1, 1);
+            m.addEntry(alert("x", 5));
+        });
+        assertTrue(alertModel.getValueAt(1, 0).equals(Instant.ofEpochMilli(99).toString()));
+        TableSnapshot<Alert> s2 = alertModel.snapshot();
+        assertTrue(s2.getVersion() > s1.getVersion());
+        assertTrue(s2.getRowCount() == 4);
+        // the derived column is updated with its source column
+        assertTrue(events.size() == 3);
+        assertTrue(events.get(0).getColumn() == 0 && events.get(1).getColumn() == 1);
+    }
+    
+    private static Position position(int quantity, double price) {
+        Position p = new Position();
+        p.quantity = quantity;
+        p.price = price;
+        return p;
+    }
+    
+    @Test
+    public void testUndoRedo() {
+        GenericTableModel<Position> positionModel = new GenericTableModel<Position>() {
+            private static final long serialVersionUID = -8240186283620153715L;
+        };
+        UndoManager undo = new UndoManager();
+        undo.setLimit(10);
+        positionModel.addUndoableEditListener(undo);
+        positionModel.addEntries(Arrays.asList(position(1, 1.0), position(2, 2.0), position(3, 3.0)));
+        positionModel.setValueAt(20, 1, 0);
+        positionModel.removeEntryAt(0);
+        
+        List<TableModelEvent> events = new ArrayList<>();
+        positionModel.addTableModelListener(events::add);
+        undo.undo();
+        assertTrue(positionModel.size() == 3 && positionModel.getEntry(0).quantity == 1);
+        assertTrue(events.size() == 1 && events.get(0).getType() == TableModelEvent.INSERT && events.get(0).getFirstRow() == 0);
+        
+        events.clear();
+        undo.undo();
+        assertTrue(positionModel.getValueAt(1, 0).equals(2));
+        TableModelEvent e = events.get(0);
+        assertTrue(events.size() == 1 && e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == 1 && e.getColumn() == 0);
+        
+        undo.undo();
+        assertTrue(positionModel.size() == 0);
+        assertTrue(!undo.canUndo());
+        
+        undo.redo();
+        undo.redo();
+        assertTrue(positionModel.size() == 3 && positionModel.getValueAt(1, 0).equals(20));
+        undo.redo();
+        assertTrue(positionModel.size() == 2 && positionModel.getEntry(0).quantity == 20);
+        assertTrue(!undo.canRedo());
+        
+        // a new edit discards the redo history
+        undo.undo();
+        positionModel.setValueAt(4.0, 0, 1);
+        assertTrue(!undo.canRedo());
+        undo.undo();
+        assertTrue(positionModel.getValueAt(0, 1).equals(1.0));
+    }
+    
+    @Test
+    public void testUndoBatch() {
+        GenericTableModel<Position> positionModel = new GenericTableModel<Position>() {
+            private static final long serialVersionUID = 3326573317040622717L;
+        };
+        positionModel.addEntries(Arrays.asList(position(1, 1.0), position(2, 2.0)));
+        UndoManager undo = new UndoManager();
+        positionModel.addUndoableEditListener(undo);
+        positionModel.batch(m -> {
+            m.setValueAt(10, 0, 0);
+            m.setValueAt(20, 1, 0);
+            m.addEntry(position(3, 3.0));
+        });
+        
+        List<TableModelEvent> events = new ArrayList<>();
+        positionModel.addTableModelListener(events::add);
+        undo.undo();
+        assertTrue(positionModel.size() == 2);
+        assertTrue(positionModel.getValueAt(0, 0).equals(1) && positionModel.getValueAt(1, 0).equals(2));
+        // undone as a batch: one removal and one update
+        assertTrue(events.size() == 2);
+        assertTrue(events.get(0).getType() == TableModelEvent.DELETE && events.get(0).getFirstRow() == 2);
+        assertTrue(events.get(1).getFirstRow() == 0 && events.get(1).getLastRow() == 1 && events.get(1).getColumn() == 0);
+        assertTrue(!undo.canUndo());
+        
+        undo.redo();
+        assertTrue(positionModel.size() == 3 && positionModel.getValueAt(1, 0).equals(20));
+        assertTrue(!undo.canRedo() && undo.canUndo());
+        
+        // entries are found by identity after rows moved
+        positionModel.setValueAt(30, 2, 0);
+        positionModel.removeUndoableEditListener(undo);
+        positionModel.removeEntryAt(0);
+        undo.undo();
+        assertTrue(positionModel.getValueAt(1, 0).equals(3));
+        
+        // a batch without edits posts nothing
+        positionModel.addUndoableEditListener(undo);
+        undo.discardAllEdits();
+        positionModel.batch(m -> m.fireTableDataChanged());
+        assertTrue(!undo.canUndo());
+        
+        // recorded rows follow the rows inserted before them
+        positionModel.setValueAt(40, 1, 0);
+        positionModel.data.add(0, position(5, 5.0));
+        positionModel.fireTableRowsInserted(0, 0);
+        events.clear();
+        undo.undo();
+        assertTrue(positionModel.getValueAt(2, 0).equals(3));
+        assertTrue(events.size() == 1 && events.get(0).getFirstRow() == 2 && events.get(0).getLastRow() == 2);
+        undo.redo();
+        positionModel.fireTableDataChanged();
+        events.clear();
+        undo.undo();
+        assertTrue(events.size() == 1 && events.get(0).getFirstRow() == 2 && events.get(0).getLastRow() == 2);
+    }
+    
+    @Test
+    public void testUndoLimits() {
+        GenericTableModel<Alert> alertModel = new GenericTableModel<Alert>() {
+            private static final long serialVersionUID = -1467335744360935718L;
+        };
+        ManualClock clock = new ManualClock();
+        alertModel.addEntries(Arrays.asList(alert("a", 0), alert("b", 1000), alert("c", 2000), alert("d", 3000)));
+        alertModel.timeWindow(1, Duration.ofMinutes(1), clock);
+        UndoManager undo = new UndoManager();
+        alertModel.addUndoableEditListener(undo);
+        
+        // evicted rows shift the recorded rows
+        alertModel.removeEntryAt(2);
+        clock.now = Instant.ofEpochMilli(60_500);
+        assertTrue(alertModel.evictExpired() == 1);
+        undo.undo();
+        assertTrue(alertModel.size() == 3 && alertModel.getEntry(1).message.equals("c"));
+        
+        // edits of evicted rows are discarded
+        alertModel.removeEntryAt(0);
+        clock.now = Instant.ofEpochMilli(62_500);
+        assertTrue(alertModel.evictExpired() == 1);
+        assertTrue(!undo.canUndo());
+        alertModel.clearTimeWindow();
+        
+        // too large to keep
+        alertModel.addEntry(alert("x", 70_000));
+        assertTrue(undo.canUndo());
+        List<Alert> alerts = new ArrayList<>();
+        for(int i = 0; i <= UndoJournal.MAX_ROWS; i++) {
+            alerts.add(alert("n" + i, i));
+        }
+        alertModel.setEntries(alerts);
+        assertTrue(!undo.canUndo());
+    }
+    
+    @Test
+    public void testDetectStalls() {
+        List<TableModelEvent> events = new ArrayList<>();
+        GenericTableModel<Alert> alertModel = alerts(3, events);
+        StallDetector detector = new StallDetector(Duration.ofMillis(5));
+        alertModel.detectStalls(detector);
+        alertModel.fireTableCellUpdated(0, 0);
+        assertTrue(detector.getStallCount() == 0);
+        
+        alertModel.addTableModelListener(e -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        alertModel.fireTableCellUpdated(0, 0);
+        assertTrue(detector.getStallCount() == 1);
+        assertTrue(detector.getLongest().toMillis() >= 20);
+        // a batch is one operation
+        alertModel.batch(m -> {
+            m.fireTableCellUpdated(1, 0);
+            m.fireTableCellUpdated(2, 0);
+        });
+        assertTrue(detector.getStallCount() == 2);
+        // a change is timed as a whole, once
+        alertModel.setEntries(Arrays.asList(alert("x", 0), alert("y", 0)));
+        assertTrue(detector.getStallCount() == 3);
+        
+        // the work outside listeners counts too
+        alertModel.detectStalls(null);
+        alertModel.columnGet(0, a -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return a.message;
+        });
+        alertModel.detectStalls(detector);
+        alertModel.snapshot();
+        assertTrue(detector.getStallCount() == 4);
+        
+        alertModel.detectStalls(null);
+        alertModel.fireTableCellUpdated(0, 0);
+        assertTrue(detector.getStallCount() == 4);
+    }
+    
+    private static record Quote(
+        @OrderedColumn(index=1, name="Bid", type = Double.class) double bid,
+        @OrderedColumn(index=0, name="Symbol", type = String.class) String symbol,
+        @OrderedColumn(index=2, name="Issuer", type = String.class, path = "name", editable = true) Issuer issuer) {}
+    
+    private static record EditableQuote(
+        @OrderedColumn(index=0, name="Symbol", type = String.class, editable = true) String symbol) {}
+    
+    private static record Listing(
+        @OrderedColumn(index=0, name="Venue", type = String.class, dictionary = true) String venue) {}
+    
+    private static final class Account {
+        private String id;
+        private double balance;
+        
+        @OrderedColumn(index=0, name="Id", type = String.class)
+        public String getId() {
+            return id;
+        }
+        
+        @OrderedColumn(index=1, name="Balance", type = Double.class, editable = true)
+        public double getBalance() {
+            return balance;
+        }
+        
+        public void setBalance(double balance) {
+            this.balance = balance;
+        }
+    }
+    
+    @Test
+    public void testRecordColumns() {
+        GenericTableModel<Quote> quoteModel = new GenericTableModel<Quote>() {
+            private static final long serialVersionUID = 7046802961227101788L;
+        };
+        Issuer issuer = new Issuer();
+        issuer.name = "Acme";
+        quoteModel.addEntry(new Quote(1.5, "ACME", issuer));
+        assertTrue(quoteModel.getColumnCount() == 3);
+        assertTrue(quoteModel.getColumnName(0).equals("Symbol"));
+        assertTrue(quoteModel.getValueAt(0, 0).equals("ACME"));
+        assertTrue(quoteModel.getValueAt(0, 1).equals(1.5));
+        assertTrue(quoteModel.getValueAt(0, 2).equals("Acme"));
+        assertTrue(quoteModel.fields[1].getName().equals("bid"));
+        assertTrue(!quoteModel.isCellEditable(0, 0));
+        // the component is read-only, the issuer it refers to is not
+        quoteModel.setValueAt("Acme Corp", 0, 2);
+        assertTrue(issuer.name.equals("Acme Corp"));
+    }
+    
+    @Test
+    public void testDictionaryRecordComponent() {
+        GenericTableModel<Listing> listingModel = new GenericTableModel<Listing>() {
+            private static final long serialVersionUID = -6817262310938262064L;
+        };
+        // equal values in distinct instances; the components cannot be canonicalized
+        Listing first = new Listing(new String("XNYS"));
+        Listing second = new Listing(new String("XNYS"));
+        listingModel.addEntry(first);
+        listingModel.addEntry(second);
+        ColumnDictionary dictionary = listingModel.getDictionary(0);
+        assertTrue(dictionary.size() == 2);
+        assertTrue(dictionary.getRowCode(0) == dictionary.getRowCode(1));
+        assertTrue(listingModel.getEntry(1).venue() == second.venue());
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void testEditableRecordComponent() {
+        new GenericTableModel<EditableQuote>() {
+            private static final long serialVersionUID = -3395874201536018203L;
+        };
+    }
+    
+    @Test
+    public void testGetterColumns() {
+        GenericTableModel<Account> accountModel = new GenericTableModel<Account>() {
+            private static final long serialVersionUID = -2369128693587458766L;
+        };
+        Account account = new Account();
+        account.id = "A-1";
+        account.balance = 10;
+        accountModel.addEntry(account);
+        // the fields behind the getters are not columns of their own
+        assertTrue(accountModel.getColumnCount() == 2);
+        assertTrue(accountModel.getColumnName(0).equals("Id"));
+        assertTrue(accountModel.getColumnName(1).equals("Balance"));
+        assertTrue(accountModel.getValueAt(0, 0).equals("A-1"));
+        assertTrue(accountModel.getValueAt(0, 1).equals(10.0));
+        accountModel.setValueAt(25.0, 0, 1);
+        assertTrue(account.balance == 25.0);
+    }
+    
     @Test
     public void testRemoveAllEmptyModel() {
         assertTrue(animalModel.size() == 0);
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JoinedTableModelTest {
+    private static final class Order {
+        @OrderedColumn(index=0, name="Order", type = String.class)
+        String id;
+        @OrderedColumn(index=1, name="Quantity", type = Integer.class, editable = true)
+        Integer quantity;
+    }
+
+    private static final class Fill {
+        @OrderedColumn(index=0, name="Fill Order", type = String.class, editable = true)
+        String orderId;
+        @OrderedColumn(index=1, name="Price", type = Double.class, editable = true)
+        Double price;
+    }
+
+    private GenericTableModel<Order> orders;
+    private GenericTableModel<Fill> fills;
+    private JoinedTableModel<Order, Fill, String> joined;
+    private List<TableModelEvent> events;
+
+    private static Order order(String id, int quantity) {
+        Order o = new Order();
+        o.id = id;
+        o.quantity = quantity;
+        return o;
+    }
+
+    private static Fill fill(String orderId, double price) {
+        Fill f = new Fill();
+        f.orderId = orderId;
+        f.price = price;
+        return f;
+    }
+
+    @Before
+    public void before() {
+        orders = new GenericTableModel<Order>() {
+            private static final long serialVersionUID = 3130566264541416553L;
+        };
+        fills = new GenericTableModel<Fill>() {
+            private static final long serialVersionUID = 2601426117553567066L;
+        };
+        orders.addEntry(order("A", 10));
+        orders.addEntry(order("B", 20));
+        orders.addEntry(order("C", 30));
+        fills.addEntry(fill("B", 1.5));
+        joined = new JoinedTableModel<>(orders, o -> o.id, fills, f -> f.orderId);
+        events = new ArrayList<>();
+        joined.addTableModelListener(events::add);
+    }
+
+    @Test
+    public void testColumns() {
+        assertTrue(joined.getColumnCount() == 4);
+        assertTrue(joined.getColumnName(0).equals("Order"));
+        assertTrue(joined.getColumnName(3).equals("Price"));
+        assertTrue(joined.getColumnClass(3) == Double.class);
+        assertTrue(joined.getRowCount() == 3);
+        assertTrue(joined.getValueAt(0, 3) == null);
+        assertTrue(joined.getValueAt(1, 0).equals("B"));
+        assertTrue(joined.getValueAt(1, 3).equals(1.5));
+        assertTrue(!joined.isCellEditable(1, 1));
+    }
+
+    @Test
+    public void testRightChangesUpdateMatchingRows() {
+        fills.addEntry(fill("C", 2.0));
+        assertTrue(events.size() == 1);
+        assertTrue(events.get(0).getType() == TableModelEvent.UPDATE);
+        assertTrue(events.get(0).getFirstRow() == 2 && events.get(0).getLastRow() == 2);
+        assertTrue(joined.getValueAt(2, 3).equals(2.0));
+
+        // latest fill wins; removing it falls back to the earlier fill
+        fills.addEntry(fill("B", 3.0));
+        assertTrue(joined.getValueAt(1, 3).equals(3.0));
+        fills.removeEntryAt(2);
+        assertTrue(joined.getValueAt(1, 3).equals(1.5));
+
+        // an older fill does not change the joined row
+        events.clear();
+        fills.addEntry(fill("B", 4.0));
+        fills.removeEntryAt(0);
+        assertTrue(events.size() == 1);
+        assertTrue(joined.getValueAt(1, 3).equals(4.0));
+
+        // re-keyed fill moves to the other order
+        events.clear();
+        fills.setValueAt("A", 1, 0);
+        assertTrue(joined.getValueAt(0, 3).equals(4.0));
+        assertTrue(joined.getValueAt(1, 3) == null);
+        assertTrue(events.size() == 2);
+
+        fills.removeAll();
+        assertTrue(joined.getValueAt(0, 3) == null);
+        assertTrue(joined.getValueAt(2, 3) == null);
+    }
+
+    @Test
+    public void testLeftChangesMapToRows() {
+        orders.addEntry(order("B", 40));
+        assertTrue(events.size() == 1);
+        assertTrue(events.get(0).getType() == TableModelEvent.INSERT && events.get(0).getFirstRow() == 3);
+        assertTrue(joined.getValueAt(3, 3).equals(1.5));
+
+        orders.setValueAt(11, 0, 1);
+        assertTrue(events.get(1).getType() == TableModelEvent.UPDATE && events.get(1).getColumn() == 1);
+        assertTrue(joined.getValueAt(0, 1).equals(11));
+
+        // remove from the middle; right changes still reach the shifted rows
+        orders.removeEntryAt(0);
+        assertTrue(events.get(2).getType() == TableModelEvent.DELETE && events.get(2).getFirstRow() == 0);
+        events.clear();
+        fills.addEntry(fill("B", 5.0));
+        assertTrue(events.size() == 2);
+        assertTrue(events.get(0).getFirstRow() == 0 && events.get(0).getLastRow() == 0);
+        assertTrue(events.get(1).getFirstRow() == 2 && events.get(1).getLastRow() == 2);
+        assertTrue(joined.getValueAt(0, 3).equals(5.0));
+        assertTrue(joined.getValueAt(2, 3).equals(5.0));
+
+        orders.removeAll();
+        assertTrue(joined.getRowCount() == 0);
+    }
+
+    @Test
+    public void testLeftIndexFollowsInsertsAndDeletes() {
+        Random random = new Random(3);
+        String[] keys = { "A", "B", "C", "D" };
+        for(int i = 0; i < 500; i++) {
+            int size = orders.getRowCount();
+            if(size == 0 || random.nextBoolean()) {
+                int at = random.nextInt(size + 1);
+                int count = 1 + random.nextInt(3);
+                for(int k = 0; k < count; k++) {
+                    orders.data.add(at + k, order(keys[random.nextInt(keys.length)], i));
+                }
+                orders.fireTableRowsInserted(at, at + count - 1);
+            } else {
+                int at = random.nextInt(size);
+                int count = Math.min(size - at, 1 + random.nextInt(3));
+                orders.data.subList(at, at + count).clear();
+                orders.fireTableRowsDeleted(at, at + count - 1);
+            }
+            // a fill updates exactly the rows of its order
+            String key = keys[random.nextInt(keys.length)];
+            events.clear();
+            fills.addEntry(fill(key, i));
+            Set<Integer> updated = new HashSet<>();
+            for(TableModelEvent e : events) {
+                for(int row = e.getFirstRow(); row <= e.getLastRow(); row++) {
+                    updated.add(row);
+                }
+            }
+            Set<Integer> expected = new HashSet<>();
+            for(int row = 0; row < orders.getRowCount(); row++) {
+                if(orders.getEntry(row).id.equals(key)) {
+                    expected.add(row);
+                }
+            }
+            assertTrue(updated.equals(expected));
+        }
+    }
+
+    @Test
+    public void testRelease() {
+        joined.release();
+        orders.addEntry(order("D", 1));
+        fills.addEntry(fill("A", 1));
+        assertTrue(events.isEmpty());
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpillingRowStoreTest {
+    private static final class Bar {
+        @OrderedColumn(index=0, name="Date", type = LocalDate.class)
+        LocalDate date;
+        @OrderedColumn(index=1, name="Close", type = double.class, editable = true)
+        double close;
+        @OrderedColumn(index=2, name="Symbol", type = String.class)
+        String symbol;
+    }
+
+    private static final class Unsupported {
+        @OrderedColumn(index=0, name="Values", type = List.class)
+        List<String> values;
+    }
+
+    private GenericTableModel<Bar> barModel;
+    private SpillingRowStore<Bar> store;
+
+    private static Bar bar(int day) {
+        Bar b = new Bar();
+        b.date = LocalDate.ofEpochDay(day);
+        b.close = day / 2.0;
+        b.symbol = day % 2 == 0 ? "EVEN" : null;
+        return b;
+    }
+
+    @Before
+    public void before() {
+        barModel = new GenericTableModel<Bar>() {
+            private static final long serialVersionUID = -4081126524950218062L;
+        };
+        for(int i = 0; i < 10; i++) {
+            barModel.addEntry(bar(i));
+        }
+        store = barModel.spillRows(Bar::new, 600);
+        List<Bar> bars = new ArrayList<>();
+        for(int i = 10; i < 3000; i++) {
+            bars.add(bar(i));
+        }
+        barModel.addEntries(bars);
+    }
+
+    @Test
+    public void testRowsArePagedBack() {
+        assertTrue(barModel.getRowCount() == 3000);
+        assertTrue(store.getResidentRows() <= 3 * SpillingRowStore.BLOCK_SIZE);
+        assertTrue(store.getSpills() > 0);
+        long misses = store.getMisses();
+        for(int row = 0; row < 3000; row++) {
+            assertTrue(barModel.getValueAt(row, 0).equals(LocalDate.ofEpochDay(row)));
+            assertTrue(barModel.getValueAt(row, 1).equals(row / 2.0));
+            assertTrue(row % 2 == 0 ? "EVEN".equals(barModel.getValueAt(row, 2)) : barModel.getValueAt(row, 2) == null);
+        }
+        assertTrue(store.getMisses() > misses);
+        assertTrue(store.getHits() > store.getMisses());
+
+        // the same block again is a hit
+        long hits = store.getHits();
+        misses = store.getMisses();
+        barModel.getEntry(2999);
+        assertTrue(store.getHits() == hits + 1 && store.getMisses() == misses);
+    }
+
+    @Test
+    public void testChangesSurviveSpilling() {
+        barModel.setValueAt(-1.0, 5, 1);
+        // touch every row so the first block is spilled and read back
+        for(int row = 0; row < 3000; row++) {
+            barModel.getEntry(row);
+        }
+        assertTrue(barModel.getValueAt(5, 1).equals(-1.0));
+    }
+
+    @Test
+    public void testReferencedEntriesKeepIdentity() {
+        Bar held = barModel.getEntry(5);
+        long misses = store.getMisses();
+        for(int row = 0; row < 3000; row++) {
+            barModel.getEntry(row);
+        }
+        // changed while spilled
+        held.close = -7;
+        assertTrue(barModel.getEntry(5) == held);
+        assertTrue(store.getMisses() > misses);
+        assertTrue(barModel.getValueAt(5, 1).equals(-7.0));
+    }
+
+    @Test
+    public void testStructuralChanges() {
+        List<TableModelEvent> events = new ArrayList<>();
+        barModel.addTableModelListener(events::add);
+        barModel.removeEntryAt(0);
+        assertTrue(barModel.getValueAt(0, 0).equals(LocalDate.ofEpochDay(1)));
+        barModel.getEntry(2000);
+        barModel.data.add(100, bar(-1));
+        assertTrue(barModel.getEntry(100).close == -0.5);
+        assertTrue(barModel.getEntry(101).date.equals(LocalDate.ofEpochDay(101)));
+
+        // expired rows at the front drop whole blocks
+        barModel.data.subList(0, 1000).clear();
+        assertTrue(barModel.getRowCount() == 2000);
+        assertTrue(barModel.getValueAt(0, 0).equals(LocalDate.ofEpochDay(1000)));
+        assertTrue(barModel.getValueAt(1999, 0).equals(LocalDate.ofEpochDay(2999)));
+
+        barModel.removeAll();
+        assertTrue(barModel.getRowCount() == 0);
+        assertTrue(events.get(events.size() - 1).getType() == TableModelEvent.DELETE);
+        barModel.addEntry(bar(1));
+        assertTrue(barModel.getValueAt(0, 1).equals(0.5));
+    }
+
+    @Test
+    public void testRandomAccessAfterChanges() {
+        // the block index follows inserts, removals and splits anywhere
+        List<Bar> expected = new ArrayList<>(barModel.data);
+        Random random = new Random(7);
+        for(int i = 0; i < 2000; i++) {
+            int op = random.nextInt(4);
+            if(op == 0 || expected.isEmpty()) {
+                int at = random.nextInt(expected.size() + 1);
+                Bar b = bar(-i);
+                expected.add(at, b);
+                store.add(at, b);
+            } else if(op == 1) {
+                int at = random.nextInt(expected.size());
+                assertTrue(store.remove(at) == expected.remove(at));
+            } else if(op == 2) {
+                int from = random.nextInt(expected.size());
+                int to = Math.min(expected.size(), from + random.nextInt(600));
+                expected.subList(from, to).clear();
+                store.subList(from, to).clear();
+            } else {
+                int at = random.nextInt(expected.size());
+                assertTrue(store.get(at) == expected.get(at));
+            }
+        }
+        assertTrue(store.size() == expected.size());
+        for(int row = expected.size() - 1; row >= 0; row--) {
+            assertTrue(store.get(row) == expected.get(row));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedField() {
+        GenericTableModel<Unsupported> model = new GenericTableModel<Unsupported>() {
+            private static final long serialVersionUID = -7342316035002917380L;
+        };
+        model.spillRows(Unsupported::new, 100);
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableArchiveTest {
+    private enum Status { OPEN, CLOSED }
+
+    private static final class Order {
+        @OrderedColumn(index=0, name="Id", type = Long.class)
+        long id;
+        @OrderedColumn(index=1, name="Venue", type = String.class)
+        String venue;
+        @OrderedColumn(index=2, name="Price", type = Double.class)
+        Double price;
+        @OrderedColumn(index=3, name="Status", type = Status.class)
+        Status status;
+        @OrderedColumn(index=4, name="Note", type = Object.class)
+        Object note;
+    }
+
+    @SuppressWarnings("unused")
+    private static final class Summary {
+        @OrderedColumn(index=0, name="Id", type = Long.class)
+        long id;
+        @OrderedColumn(index=1, name="Note", type = Object.class)
+        Object note;
+    }
+
+    private GenericTableModel<Order> orderModel;
+
+    @Before
+    public void before() {
+        orderModel = new GenericTableModel<Order>() {
+            private static final long serialVersionUID = 1953212467813547000L;
+        };
+    }
+
+    private byte[] save(int rows) throws IOException {
+        for(int i = 0; i < rows; i++) {
+            Order o = new Order();
+            o.id = i;
+            o.venue = i % 3 == 0 ? "NYSE" : i % 3 == 1 ? "LSE" : null;
+            o.price = i % 5 == 0 ? null : i * 1.5;
+            o.status = i % 2 == 0 ? Status.OPEN : Status.CLOSED;
+            o.note = i % 2 == 0 ? "n" + i : Integer.valueOf(i);
+            orderModel.addEntry(o);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long written = TableArchive.save(orderModel, Channels.newChannel(bytes));
+        assertTrue(written == bytes.size());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        int rows = 1000;
+        byte[] archive = save(rows);
+
+        GenericTableModel<Order> restored = new GenericTableModel<Order>() {
+            private static final long serialVersionUID = -7391856127437339599L;
+        };
+        AtomicInteger events = new AtomicInteger();
+        restored.addTableModelListener(e -> {
+            assertTrue(e.getType() == TableModelEvent.UPDATE && e.getLastRow() == Integer.MAX_VALUE);
+            events.incrementAndGet();
+        });
+        int count = TableArchive.restore(restored, Channels.newChannel(new ByteArrayInputStream(archive)), Order::new);
+        assertTrue(count == rows);
+        assertTrue(events.get() == 1);
+        assertTrue(restored.size() == rows);
+        for(int r = 0; r < rows; r++) {
+            for(int c = 0; c < orderModel.getColumnCount(); c++) {
+                Object expected = orderModel.getValueAt(r, c);
+                Object actual = restored.getValueAt(r, c);
+                assertTrue(expected == null ? actual == null : expected.equals(actual));
+            }
+        }
+        // dictionary encoded strings share instances
+        assertTrue(restored.getEntry(0).venue == restored.getEntry(3).venue);
+    }
+
+    @Test
+    public void testUnknownColumnsSkipped() throws Exception {
+        byte[] archive = save(10);
+        GenericTableModel<Summary> summaryModel = new GenericTableModel<Summary>() {
+            private static final long serialVersionUID = 6000541196447880573L;
+        };
+        TableArchive.restore(summaryModel, Channels.newChannel(new ByteArrayInputStream(archive)), Summary::new);
+        assertTrue(summaryModel.size() == 10);
+        assertTrue(summaryModel.getEntry(9).id == 9);
+        assertTrue(summaryModel.getEntry(9).note.equals(9));
+    }
+
+    @Test
+    public void testEmptyModel() throws Exception {
+        byte[] archive = save(0);
+        assertTrue(TableArchive.read(orderModel, Channels.newChannel(new ByteArrayInputStream(archive)), Order::new).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotAnArchive() throws Exception {
+        TableArchive.read(orderModel, Channels.newChannel(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 })), Order::new);
+    }
+}
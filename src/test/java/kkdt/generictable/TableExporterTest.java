@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.swing.JTable;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableExporterTest {
+    private static final class Employee {
+        @OrderedColumn(index=0, name="Name", type = String.class)
+        String name;
+        @OrderedColumn(index=1, name="Age", type = Integer.class)
+        int age;
+    }
+
+    private GenericTableModel<Employee> tableModel;
+    private GenericTableController<Employee> tableController;
+    private JTable table;
+
+    private static Employee employee(String name, int age) {
+        Employee e = new Employee();
+        e.name = name;
+        e.age = age;
+        return e;
+    }
+
+    @Before
+    public void before() {
+        tableModel = new GenericTableModel<Employee>() {
+            private static final long serialVersionUID = -1961400916017767263L;
+        };
+        table = new JTable();
+        tableController = new GenericTableController<>(table, tableModel).defaultRowSorter();
+        tableController.addEntry(employee("Smith, John", 40));
+        tableController.addEntry(employee("Doe", 20));
+        tableController.addEntry(employee("Say \"hi\"", 30));
+        tableController.addEntry(employee("Young", 5));
+    }
+
+    @Test
+    public void testExportCsvView() throws Exception {
+        table.getRowSorter().setSortKeys(Arrays.asList(new RowSorter.SortKey(1, SortOrder.ASCENDING)));
+        tableController.filter(tableController.createFilter(e -> e.age >= 10));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TableExporter exporter = tableController.export(Channels.newChannel(bytes), TableFormat.CSV);
+
+        // later changes are not part of the export
+        tableController.clearTable();
+
+        long written = exporter.get();
+        String csv = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(csv.equals("Name,Age\nDoe,20\n\"Say \"\"hi\"\"\",30\n\"Smith, John\",40\n"));
+        assertTrue(written == bytes.size());
+    }
+
+    @Test
+    public void testExportColumnOrder() throws Exception {
+        table.moveColumn(1, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tableController.export(Channels.newChannel(bytes), TableFormat.TSV).get();
+        String tsv = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(tsv.startsWith("Age\tName\n40\tSmith, John\n"));
+    }
+
+    @Test
+    public void testExportBinary() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        tableController.exportBinary(Channels.newChannel(bytes)).get();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        assertTrue(buffer.getInt() == TableExporter.MAGIC);
+        assertTrue(buffer.get() == 2);
+        // "Name" column then its type
+        assertTrue(buffer.get() == 4);
+        byte[] name = new byte[4];
+        buffer.get(name);
+        assertTrue(new String(name, StandardCharsets.UTF_8).equals("Name"));
+    }
+}
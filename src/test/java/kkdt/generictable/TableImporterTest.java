@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingWorker.StateValue;
+import javax.swing.event.TableModelEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableImporterTest {
+    private static final class Animal {
+        @OrderedColumn(index=0, name="Animal Name", type = String.class)
+        String name;
+        @OrderedColumn(index=1, name="Animal Owner", type = String.class)
+        String owner;
+        @OrderedColumn(index=2, name="Age", type = Integer.class)
+        int age;
+    }
+
+    private GenericTableModel<Animal> animalModel;
+    private Path file;
+
+    @Before
+    public void before() throws Exception {
+        animalModel = new GenericTableModel<Animal>() {
+            private static final long serialVersionUID = -3016443018470945263L;
+        };
+        file = Files.createTempFile("animals", ".csv");
+    }
+
+    @After
+    public void after() throws Exception {
+        Files.deleteIfExists(file);
+    }
+
+    private TableImporter<Animal> importAndWait(TableFormat format) throws Exception {
+        TableImporter<Animal> importer = new TableImporter<>(animalModel, file, format, Animal::new);
+        CountDownLatch done = new CountDownLatch(1);
+        importer.addPropertyChangeListener(e -> {
+            if("state".equals(e.getPropertyName()) && e.getNewValue() == StateValue.DONE) {
+                done.countDown();
+            }
+        });
+        importer.execute();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return importer;
+    }
+
+    @Test
+    public void testImportCsv() throws Exception {
+        Files.writeString(file, "Age,Animal Name,Unknown,Animal Owner\r\n"
+            + "1,Chance,x,Sam\r\n"
+            + "2,\"Casa, the \"\"cat\"\"\",y,\"Peter\nPan\"\r\n"
+            + "\r\n"
+            + ",Nobody,z,", StandardCharsets.UTF_8);
+        TableImporter<Animal> importer = importAndWait(TableFormat.CSV);
+        assertTrue(importer.get() == 3);
+        assertTrue(importer.getProgress() == 100);
+        assertTrue(animalModel.size() == 3);
+        assertTrue(animalModel.getEntry(0).name.equals("Chance"));
+        assertTrue(animalModel.getEntry(0).owner.equals("Sam"));
+        assertTrue(animalModel.getEntry(0).age == 1);
+        assertTrue(animalModel.getEntry(1).name.equals("Casa, the \"cat\""));
+        assertTrue(animalModel.getEntry(1).owner.equals("Peter\nPan"));
+        assertTrue(animalModel.getEntry(2).age == 0);
+        assertTrue(animalModel.getEntry(2).owner == null);
+    }
+
+    @Test
+    public void testImportTsvBatches() throws Exception {
+        StringBuilder text = new StringBuilder("Animal Name\tAge\n");
+        int size = 5000;
+        for(int i = 0; i < size; i++) {
+            text.append("Animal").append(i).append('\t').append(i).append('\n');
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+        int[] inserts = new int[1];
+        animalModel.addTableModelListener(e -> {
+            if(e.getType() == TableModelEvent.INSERT) {
+                inserts[0]++;
+            }
+        });
+        TableImporter<Animal> importer = importAndWait(TableFormat.TSV);
+        assertTrue(importer.get() == size);
+        assertTrue(animalModel.size() == size);
+        assertTrue(inserts[0] <= (size / 1024) + 1);
+        assertTrue(animalModel.getEntry(size - 1).name.equals("Animal" + (size - 1)));
+        assertTrue(animalModel.getEntry(size - 1).age == size - 1);
+    }
+}
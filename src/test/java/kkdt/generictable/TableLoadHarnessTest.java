@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.swing.JTable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableLoadHarnessTest {
+    private static final class Tick {
+        @OrderedColumn(index=0, name="Sequence", type = Integer.class)
+        int sequence;
+        @OrderedColumn(index=1, name="Price", type = Double.class)
+        double price;
+    }
+
+    private GenericTableController<Tick> controller;
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    private Tick tick() {
+        Tick t = new Tick();
+        t.sequence = sequence.incrementAndGet();
+        t.price = t.sequence % 100;
+        return t;
+    }
+
+    @Before
+    public void before() {
+        GenericTableModel<Tick> model = new GenericTableModel<Tick>() {
+            private static final long serialVersionUID = -2176025418049591346L;
+        };
+        controller = new GenericTableController<>(new JTable(), model).genericRowSorter();
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        StallDetector detector = new StallDetector(Duration.ofSeconds(5));
+        controller.getModel().detectStalls(detector);
+        TableLoadHarness.Report report = new TableLoadHarness<>(controller)
+            .appender(this::tick, 2000)
+            .producer(m -> {
+                if(m.size() > 0) {
+                    m.fireTableRowsUpdated(0, m.size() - 1);
+                }
+            }, 50)
+            .viewport(400, 200)
+            .detectStalls(Duration.ofSeconds(1))
+            .run(Duration.ofMillis(400));
+        assertTrue(report.getOperations() > 0);
+        assertTrue(report.getInsertEvents() == controller.getModel().size());
+        assertTrue(report.getInsertEvents() <= report.getOperations());
+        assertTrue(report.getUpdateEvents() > 0);
+        assertTrue(report.getPaints() > 0);
+        assertTrue(report.getSamples() > 0);
+        assertTrue(report.getLatency(50).compareTo(report.getLatency(99)) <= 0);
+        assertTrue(report.getLatency(99).compareTo(report.getLatency(100)) <= 0);
+        assertTrue(report.getAllocatedBytes() != 0);
+        assertTrue(report.toString().contains("p99"));
+        // the detector of the model is put back
+        assertTrue(controller.getModel().getStallDetector() == detector);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRate() {
+        new TableLoadHarness<>(controller).appender(this::tick, 0);
+    }
+}
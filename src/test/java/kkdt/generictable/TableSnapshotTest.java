@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableSnapshotTest {
+    private static final class Quote {
+        @OrderedColumn(index=0, name="Symbol", type = String.class)
+        String symbol;
+        @OrderedColumn(index=1, name="Price", type = Double.class, editable = true)
+        Double price;
+    }
+
+    private GenericTableModel<Quote> quoteModel;
+
+    private static Quote quote(String symbol, double price) {
+        Quote q = new Quote();
+        q.symbol = symbol;
+        q.price = price;
+        return q;
+    }
+
+    @Before
+    public void before() {
+        quoteModel = new GenericTableModel<Quote>() {
+            private static final long serialVersionUID = -4224788484016006163L;
+        };
+        for(int i = 0; i < 3000; i++) {
+            quoteModel.addEntry(quote("S" + i, i));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        TableSnapshot<Quote> s1 = quoteModel.snapshot();
+        assertTrue(s1.getRowCount() == 3000);
+        assertTrue(s1.getColumnCount() == 2);
+        assertTrue(s1.getValueAt(5, 1).equals(5.0));
+
+        quoteModel.setValueAt(42.0, 5, 1);
+        quoteModel.removeEntryAt(0);
+        quoteModel.addEntry(quote("New", 1));
+
+        assertTrue(s1.getRowCount() == 3000);
+        assertTrue(s1.getValueAt(5, 1).equals(5.0));
+        assertTrue(s1.getValueAt(0, 0).equals("S0"));
+
+        TableSnapshot<Quote> s2 = quoteModel.snapshot();
+        assertTrue(s2.getVersion() > s1.getVersion());
+        assertTrue(s2.getRowCount() == 3000);
+        assertTrue(s2.getValueAt(4, 1).equals(42.0));
+        assertTrue(s2.getValueAt(2999, 0).equals("New"));
+    }
+
+    @Test
+    public void testUnchangedSnapshotIsReused() {
+        TableSnapshot<Quote> s1 = quoteModel.snapshot();
+        assertTrue(quoteModel.snapshot() == s1);
+        quoteModel.retainSnapshots(false);
+        assertTrue(quoteModel.snapshot() != quoteModel.snapshot());
+    }
+
+    @Test
+    public void testChunksAreShared() {
+        TableSnapshot<Quote> s1 = quoteModel.snapshot();
+        quoteModel.setValueAt(1.0, 1500, 1);
+        quoteModel.addEntry(quote("New", 1));
+        TableSnapshot<Quote> s2 = quoteModel.snapshot();
+        assertTrue(s2.chunks[0] == s1.chunks[0]);
+        assertTrue(s2.chunks[1] != s1.chunks[1]);
+        assertTrue(s2.chunks[2] != s1.chunks[2]);
+        assertTrue(s2.getRowCount() == 3001);
+        assertTrue(s2.getValueAt(1500, 1).equals(1.0));
+        assertTrue(s1.getValueAt(1500, 1).equals(1500.0));
+
+        // a middle insert or delete only touches its chunk
+        quoteModel.removeEntryAt(10);
+        quoteModel.data.add(5, quote("Mid", 7));
+        quoteModel.fireTableRowsInserted(5, 5);
+        TableSnapshot<Quote> s3 = quoteModel.snapshot();
+        assertTrue(s3.chunks[1] == s2.chunks[1] && s3.chunks[2] == s2.chunks[2]);
+        assertTrue(s3.getValueAt(5, 0).equals("Mid") && s3.getValueAt(11, 0).equals("S11"));
+        assertTrue(s2.getValueAt(10, 0).equals("S10"));
+    }
+
+    @Test
+    public void testChunksFollowChanges() {
+        Random random = new Random(11);
+        List<TableSnapshot<Quote>> taken = new ArrayList<>();
+        List<List<Object>> expected = new ArrayList<>();
+        for(int i = 0; i < 3000; i++) {
+            int op = random.nextInt(5);
+            if(op == 0) {
+                int row = random.nextInt(quoteModel.size() + 1);
+                quoteModel.data.add(row, quote("A" + i, i));
+                quoteModel.fireTableRowsInserted(row, row);
+            } else if(op == 1 && quoteModel.size() > 0) {
+                quoteModel.removeEntryAt(random.nextInt(quoteModel.size()));
+            } else if(op == 2) {
+                List<Quote> added = new ArrayList<>();
+                for(int n = random.nextInt(1500); n > 0; n--) {
+                    added.add(quote("B" + i, n));
+                }
+                quoteModel.addEntries(added);
+            } else if(op == 3 && quoteModel.size() > 0) {
+                quoteModel.setValueAt((double)i, random.nextInt(quoteModel.size()), 1);
+            } else if(quoteModel.size() > 2000) {
+                quoteModel.batch(m -> {
+                    for(int n = 0; n < 1500; n++) {
+                        m.removeEntryAt(0);
+                    }
+                });
+            }
+            if(i % 100 == 0) {
+                taken.add(quoteModel.snapshot());
+                List<Object> values = new ArrayList<>();
+                for(int row = 0; row < quoteModel.size(); row++) {
+                    values.add(quoteModel.getValueAt(row, 0));
+                    values.add(quoteModel.getValueAt(row, 1));
+                }
+                expected.add(values);
+            }
+        }
+        for(int k = 0; k < taken.size(); k++) {
+            TableSnapshot<Quote> snapshot = taken.get(k);
+            List<Object> values = expected.get(k);
+            assertTrue(snapshot.getRowCount() * 2 == values.size());
+            for(int row = 0; row < snapshot.getRowCount(); row++) {
+                assertTrue(snapshot.getValueAt(row, 0).equals(values.get(row * 2)));
+                assertTrue(snapshot.getValueAt(row, 1).equals(values.get(row * 2 + 1)));
+            }
+        }
+    }
+
+    @Test
+    public void testSnapshotOffEdt() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Double> sum = executor.submit(() -> {
+                TableSnapshot<Quote> snapshot = quoteModel.snapshot();
+                double total = 0;
+                for(int r = 0; r < snapshot.getRowCount(); r++) {
+                    total += (Double)snapshot.getValueAt(r, 1);
+                }
+                return total;
+            });
+            assertTrue(sum.get() == 2999.0 * 3000 / 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testIterator() {
+        int count = 0;
+        for(Quote q : quoteModel.snapshot()) {
+            assertTrue(q == quoteModel.getEntry(count++));
+        }
+        assertTrue(count == 3000);
+    }
+
+    @Test
+    public void testPartialSnapshot() {
+        quoteModel.columnHidden(0, true);
+        TableSnapshot<Quote> shared = quoteModel.snapshot(new int[] {2500, 10}, new int[] {1});
+        assertTrue(shared == quoteModel.snapshot());
+
+        quoteModel.retainSnapshots(false);
+        TableSnapshot<Quote> snapshot = quoteModel.snapshot(new int[] {2500, 10}, new int[] {1});
+        assertTrue(snapshot.getRowCount() == 3000);
+        assertTrue(snapshot.getValueAt(10, 1).equals(10.0));
+        assertTrue(snapshot.getValueAt(2500, 1).equals(2500.0));
+        assertTrue(snapshot.getValueAt(2500, 0) == null);
+        assertTrue(snapshot.chunks[1] == null);
+        try {
+            snapshot.getEntry(1500);
+            assertTrue(false);
+        } catch (IndexOutOfBoundsException e) {
+            assertTrue(e.getMessage().contains("not captured"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidRow() {
+        quoteModel.snapshot().getEntry(3000);
+    }
+}
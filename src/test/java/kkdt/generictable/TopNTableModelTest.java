@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2018 thinh ho
+ * This file is part of 'swing-generictable' which is released under the MIT license.
+ * See LICENSE at the project root directory.
+ */
+package kkdt.generictable;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import javax.swing.SortOrder;
+import javax.swing.event.TableModelEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TopNTableModelTest {
+    private static final class Trade {
+        @OrderedColumn(index=0, name="Id", type = Integer.class)
+        int id;
+        @OrderedColumn(index=1, name="Size", type = Integer.class, editable = true)
+        Integer size;
+    }
+
+    private GenericTableModel<Trade> trades;
+    private TopNTableModel<Trade> top;
+    private List<TableModelEvent> events;
+
+    private static Trade trade(int id, Integer size) {
+        Trade t = new Trade();
+        t.id = id;
+        t.size = size;
+        return t;
+    }
+
+    @Before
+    public void before() {
+        trades = new GenericTableModel<Trade>() {
+            private static final long serialVersionUID = 8123303391467281436L;
+        };
+        for(int i = 0; i < 10; i++) {
+            trades.addEntry(trade(i, i * 10));
+        }
+        top = new TopNTableModel<>(trades, 1, SortOrder.DESCENDING, 3);
+        events = new ArrayList<>();
+        top.addTableModelListener(events::add);
+    }
+
+    private String ids() {
+        StringBuilder ids = new StringBuilder();
+        for(int row = 0; row < top.getRowCount(); row++) {
+            ids.append(top.getValueAt(row, 0));
+        }
+        return ids.toString();
+    }
+
+    @Test
+    public void testInitialRows() {
+        assertTrue(top.getRowCount() == 3);
+        assertTrue(ids().equals("987"));
+        assertTrue(top.getColumnCount() == 2 && top.getColumnName(1).equals("Size"));
+    }
+
+    @Test
+    public void testInsert() {
+        // below the last row: no event
+        trades.addEntry(trade(10, 5));
+        assertTrue(ids().equals("987") && events.isEmpty());
+
+        trades.addEntry(trade(11, 85));
+        assertTrue(ids().equals("9118"));
+        assertTrue(events.size() == 1);
+        TableModelEvent e = events.get(0);
+        assertTrue(e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == 1 && e.getLastRow() == 2);
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        // a member moving past the last row makes room for the best outside entry
+        trades.setValueAt(1, 9, 1);
+        assertTrue(ids().equals("876"));
+
+        // an outside entry moving in
+        trades.setValueAt(75, 2, 1);
+        assertTrue(ids().equals("827"));
+
+        // a member updated in place
+        events.clear();
+        trades.setValueAt(100, 8, 1);
+        assertTrue(ids().equals("827"));
+        assertTrue(events.size() == 1 && events.get(0).getFirstRow() == 0 && events.get(0).getLastRow() == 0);
+
+        events.clear();
+        trades.removeEntryAt(8);
+        assertTrue(ids().equals("276"));
+        TableModelEvent e = events.get(events.size() - 1);
+        assertTrue(e.getType() == TableModelEvent.UPDATE || e.getType() == TableModelEvent.DELETE);
+
+        trades.removeAll();
+        assertTrue(top.getRowCount() == 0);
+        assertTrue(events.get(events.size() - 1).getType() == TableModelEvent.DELETE);
+        trades.addEntry(trade(1, null));
+        assertTrue(ids().equals("1"));
+        assertTrue(events.get(events.size() - 1).getType() == TableModelEvent.INSERT);
+    }
+
+    @Test
+    public void testMatchesFullSort() {
+        Random random = new Random(7);
+        TopNTableModel<Trade> ascending = new TopNTableModel<>(trades, 1, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()), 5);
+        for(int i = 0; i < 2000; i++) {
+            int op = random.nextInt(4);
+            if(op == 0 || trades.size() < 20) {
+                trades.addEntry(trade(100 + i, random.nextInt(50) == 0 ? null : random.nextInt(1000)));
+            } else if(op == 1) {
+                trades.removeEntryAt(random.nextInt(trades.size()));
+            } else {
+                trades.setValueAt(random.nextInt(1000), random.nextInt(trades.size()), 1);
+            }
+            List<Integer> sizes = new ArrayList<>();
+            for(int row = 0; row < trades.size(); row++) {
+                sizes.add(trades.getEntry(row).size);
+            }
+            sizes.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+            for(int row = 0; row < ascending.getRowCount(); row++) {
+                assertTrue(Objects.equals(ascending.getValueAt(row, 1), sizes.get(row)));
+            }
+            assertTrue(ascending.getRowCount() == Math.min(5, trades.size()));
+        }
+        ascending.release();
+    }
+
+    @Test
+    public void testStructureChanged() {
+        boolean[] narrow = new boolean[1];
+        GenericTableModel<Trade> source = new GenericTableModel<Trade>() {
+            private static final long serialVersionUID = -4426610397813612210L;
+
+            @Override
+            public int getColumnCount() {
+                return narrow[0] ? 1 : super.getColumnCount();
+            }
+        };
+        for(int i = 0; i < 5; i++) {
+            source.addEntry(trade(i, i));
+        }
+        TopNTableModel<Trade> view = new TopNTableModel<>(source, 1, SortOrder.DESCENDING, 3);
+        List<TableModelEvent> changes = new ArrayList<>();
+        view.addTableModelListener(changes::add);
+
+        source.fireTableStructureChanged();
+        assertTrue(changes.size() == 1 && changes.get(0).getFirstRow() == TableModelEvent.HEADER_ROW);
+        assertTrue(view.getRowCount() == 3);
+
+        // the ordering column is gone: an empty view until it is back
+        narrow[0] = true;
+        source.fireTableStructureChanged();
+        assertTrue(view.getRowCount() == 0 && view.getColumnCount() == 1);
+        source.addEntry(trade(5, 5));
+        assertTrue(view.getRowCount() == 0 && changes.size() == 2);
+
+        narrow[0] = false;
+        source.fireTableStructureChanged();
+        assertTrue(view.getRowCount() == 3 && view.getValueAt(0, 0).equals(5));
+        view.release();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLimit() {
+        new TopNTableModel<>(trades, 1, SortOrder.ASCENDING, 0);
+    }
+}